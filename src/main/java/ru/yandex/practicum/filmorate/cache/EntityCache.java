@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш сущностей по идентификатору.
+ * Кэшируются только найденные сущности; одновременные промахи по одному ключу загружаются один раз.
+ * В выключенном состоянии все обращения идут напрямую в загрузчик.
+ */
+public class EntityCache<V> {
+    private static final int GENERATION_STRIPES = 64;
+
+    private final boolean enabled;
+    private final Cache<Long, V> cache;
+    // поколения ключей по полосам: сброс увеличивает поколение, и загрузка, начатая до него, не кэшируется
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public EntityCache(String name, boolean enabled, long maximumSize, Duration expireAfterWrite,
+                       MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        }
+    }
+
+    public Optional<V> get(long id, Function<Long, Optional<V>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Возвращает найденные сущности, догружая отсутствующие в кэше одним обращением к загрузчику.
+     * Групповая загрузка Caffeine не ждет сброса ключа, как {@link #get}, поэтому загруженное кэшируется,
+     * только если ключ не сбрасывался с начала загрузки: иначе загрузка могла прочитать строку до изменения.
+     */
+    public Map<Long, V> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, V>> loader) {
+        if (!enabled) {
+            return loader.apply(Set.copyOf(ids));
+        }
+        Map<Long, V> found = new HashMap<>(cache.getAllPresent(ids));
+        Map<Long, Long> started = ids.stream()
+                .filter(id -> !found.containsKey(id))
+                .distinct()
+                .collect(Collectors.toMap(Function.identity(), this::generation));
+        if (started.isEmpty()) {
+            return found;
+        }
+        loader.apply(Set.copyOf(started.keySet())).forEach((id, value) -> {
+            found.put(id, value);
+            cache.asMap().putIfAbsent(id, value);
+            // сброс до записи виден по поколению, а сброс после нее удалит записанное сам
+            if (generation(id) != started.get(id)) {
+                cache.asMap().remove(id, value);
+            }
+        });
+        return found;
+    }
+
+    public void evict(long id) {
+        generations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        ids.forEach(id -> generations.incrementAndGet(stripe(id)));
+        cache.invalidateAll(ids);
+    }
+
+    public void evictAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    private long generation(long id) {
+        return generations.get(stripe(id));
+    }
+
+    private static int stripe(long id) {
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+}
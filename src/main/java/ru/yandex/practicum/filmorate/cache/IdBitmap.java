@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Множество существующих идентификаторов сущности. Идентификаторы выдаются базой последовательно,
+ * поэтому хранятся битами; редкие значения за пределами int лежат в обычном множестве.
+ */
+public class IdBitmap {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet bits = new BitSet();
+    private final Set<Long> overflow = new HashSet<>();
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return containsUnderLock(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsAll(Collection<Long> ids) {
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                if (!containsUnderLock(id)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long id) {
+        lock.writeLock().lock();
+        try {
+            if (fitsInBits(id)) {
+                bits.set((int) id);
+            } else {
+                overflow.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (fitsInBits(id)) {
+                bits.clear((int) id);
+            } else {
+                overflow.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void reset(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            bits.clear();
+            overflow.clear();
+            ids.forEach(id -> {
+                if (fitsInBits(id)) {
+                    bits.set(id.intValue());
+                } else {
+                    overflow.add(id);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bits.cardinality() + overflow.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean containsUnderLock(long id) {
+        return fitsInBits(id) ? bits.get((int) id) : overflow.contains(id);
+    }
+
+    private static boolean fitsInBits(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+}
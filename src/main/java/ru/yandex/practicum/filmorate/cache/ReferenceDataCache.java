@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.repository.director.DirectorRepository;
+import ru.yandex.practicum.filmorate.repository.genre.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.mpa.MpaRepository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Справочники жанров, рейтингов MPA и режиссеров в памяти процесса.
+ * Читатели всегда видят целиком один из неизменяемых снимков, изменения публикуются заменой снимка.
+ * Значения отдаются копиями: изменение полученного объекта не затрагивает снимок и другие фильмы.
+ */
+@Component
+@Slf4j
+public class ReferenceDataCache {
+    private final GenreRepository genreRepository;
+    private final MpaRepository mpaRepository;
+    private final DirectorRepository directorRepository;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    private final Map<String, Counter> hits;
+    private final Map<String, Counter> misses;
+
+    public ReferenceDataCache(GenreRepository genreRepository, MpaRepository mpaRepository,
+                              DirectorRepository directorRepository, MeterRegistry meterRegistry) {
+        this.genreRepository = genreRepository;
+        this.mpaRepository = mpaRepository;
+        this.directorRepository = directorRepository;
+        this.meterRegistry = meterRegistry;
+        this.hits = counters("hit");
+        this.misses = counters("miss");
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        Gauge.builder("filmorate.reference.cache.version", snapshot, ref -> ref.get().version())
+                .register(meterRegistry);
+    }
+
+    public synchronized void reload() {
+        Snapshot current = snapshot.get();
+        long version = current == null ? 1 : current.version() + 1;
+        snapshot.set(new Snapshot(version,
+                index(genreRepository.getAll(), Genre::getId),
+                index(mpaRepository.getAll(), Mpa::getId),
+                index(directorRepository.getAll(), Director::getId)));
+        log.info("REFERENCE-CACHE. Справочники загружены, версия {}", version);
+    }
+
+    public Optional<Genre> getGenre(int genreId) {
+        return lookup("genre", snapshot.get().genres(), genreId).map(ReferenceDataCache::copy);
+    }
+
+    public Optional<Mpa> getMpa(int mpaId) {
+        return lookup("mpa", snapshot.get().mpa(), mpaId).map(ReferenceDataCache::copy);
+    }
+
+    public Optional<Director> getDirector(int directorId) {
+        return lookup("director", snapshot.get().directors(), directorId).map(ReferenceDataCache::copy);
+    }
+
+    /**
+     * Жанр для связи фильма. Связь в базе означает, что жанр существует, поэтому промах значит,
+     * что снимок отстал от базы: жанр дочитывается из базы и добавляется в снимок.
+     */
+    public Optional<Genre> resolveGenre(int genreId) {
+        Optional<Genre> genre = getGenre(genreId);
+        if (genre.isPresent()) {
+            return genre;
+        }
+        log.warn("REFERENCE-CACHE. Жанра с id={} нет в кэше, читаем из базы", genreId);
+        Optional<Genre> loaded = genreRepository.getById(genreId);
+        loaded.ifPresentOrElse(this::putGenre,
+                () -> log.warn("REFERENCE-CACHE. Жанр с id={} не найден и в базе", genreId));
+        return loaded.map(ReferenceDataCache::copy);
+    }
+
+    /**
+     * Режиссер для связи фильма, при промахе дочитывается из базы, как в {@link #resolveGenre(int)}.
+     */
+    public Optional<Director> resolveDirector(int directorId) {
+        Optional<Director> director = getDirector(directorId);
+        if (director.isPresent()) {
+            return director;
+        }
+        log.warn("REFERENCE-CACHE. Режиссера с id={} нет в кэше, читаем из базы", directorId);
+        Optional<Director> loaded = directorRepository.getById(directorId);
+        loaded.ifPresentOrElse(this::putDirector,
+                () -> log.warn("REFERENCE-CACHE. Режиссер с id={} не найден и в базе", directorId));
+        return loaded.map(ReferenceDataCache::copy);
+    }
+
+    public Collection<Genre> getGenres() {
+        return snapshot.get().genres().values().stream().map(ReferenceDataCache::copy).toList();
+    }
+
+    public Collection<Mpa> getAllMpa() {
+        return snapshot.get().mpa().values().stream().map(ReferenceDataCache::copy).toList();
+    }
+
+    public Collection<Director> getDirectors() {
+        return snapshot.get().directors().values().stream().map(ReferenceDataCache::copy).toList();
+    }
+
+    public boolean containsAllGenres(Collection<Integer> genreIds) {
+        return containsAll("genre", snapshot.get().genres(), genreIds);
+    }
+
+    public boolean containsAllDirectors(Collection<Integer> directorIds) {
+        return containsAll("director", snapshot.get().directors(), directorIds);
+    }
+
+    public long getVersion() {
+        return snapshot.get().version();
+    }
+
+    private synchronized void putGenre(Genre genre) {
+        Snapshot current = snapshot.get();
+        Map<Integer, Genre> genres = new TreeMap<>(current.genres());
+        genres.put(genre.getId(), copy(genre));
+        snapshot.set(current.withGenres(Collections.unmodifiableMap(genres)));
+    }
+
+    public synchronized void putDirector(Director director) {
+        Snapshot current = snapshot.get();
+        Map<Integer, Director> directors = new TreeMap<>(current.directors());
+        directors.put(director.getId(), copy(director));
+        snapshot.set(current.withDirectors(Collections.unmodifiableMap(directors)));
+    }
+
+    public synchronized void removeDirector(int directorId) {
+        Snapshot current = snapshot.get();
+        Map<Integer, Director> directors = new TreeMap<>(current.directors());
+        if (directors.remove(directorId) != null) {
+            snapshot.set(current.withDirectors(Collections.unmodifiableMap(directors)));
+        }
+    }
+
+    private <T> Optional<T> lookup(String type, Map<Integer, T> values, int id) {
+        T value = values.get(id);
+        (value == null ? misses : hits).get(type).increment();
+        return Optional.ofNullable(value);
+    }
+
+    private <T> boolean containsAll(String type, Map<Integer, T> values, Collection<Integer> ids) {
+        boolean found = values.keySet().containsAll(ids);
+        (found ? hits : misses).get(type).increment();
+        return found;
+    }
+
+    private Map<String, Counter> counters(String result) {
+        return Map.of(
+                "genre", counter("genre", result),
+                "mpa", counter("mpa", result),
+                "director", counter("director", result));
+    }
+
+    private Counter counter(String type, String result) {
+        return Counter.builder("filmorate.reference.cache.requests")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Genre copy(Genre genre) {
+        return new Genre(genre.getId(), genre.getName());
+    }
+
+    private static Mpa copy(Mpa mpa) {
+        return new Mpa(mpa.getId(), mpa.getName());
+    }
+
+    private static Director copy(Director director) {
+        return new Director(director.getId(), director.getName());
+    }
+
+    private static <T> Map<Integer, T> index(Collection<T> values, Function<T, Integer> idExtractor) {
+        return Collections.unmodifiableMap(values.stream()
+                .collect(Collectors.toMap(idExtractor, Function.identity(),
+                        (oldValue, newValue) -> oldValue,
+                        TreeMap::new)));
+    }
+
+    private record Snapshot(long version, Map<Integer, Genre> genres, Map<Integer, Mpa> mpa,
+                            Map<Integer, Director> directors) {
+        Snapshot withGenres(Map<Integer, Genre> newGenres) {
+            return new Snapshot(version + 1, newGenres, mpa, directors);
+        }
+
+        Snapshot withDirectors(Map<Integer, Director> newDirectors) {
+            return new Snapshot(version + 1, genres, mpa, newDirectors);
+        }
+    }
+}
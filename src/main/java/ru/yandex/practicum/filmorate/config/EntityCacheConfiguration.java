@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+
+@Configuration
+public class EntityCacheConfiguration {
+    @Value("${filmorate.cache.entities.enabled}")
+    private boolean enabled;
+
+    @Value("${filmorate.cache.entities.maximum-size}")
+    private long maximumSize;
+
+    @Value("${filmorate.cache.entities.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    @Bean
+    public EntityCache<Film> filmCache(MeterRegistry meterRegistry) {
+        return new EntityCache<>("films", enabled, maximumSize, expireAfterWrite, meterRegistry);
+    }
+
+    @Bean
+    public EntityCache<User> userCache(MeterRegistry meterRegistry) {
+        return new EntityCache<>("users", enabled, maximumSize, expireAfterWrite, meterRegistry);
+    }
+}
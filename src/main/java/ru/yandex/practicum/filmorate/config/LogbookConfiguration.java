@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Strategy;
+
+import java.util.List;
+
+@Configuration
+public class LogbookConfiguration {
+    @Bean
+    public Strategy strategy() {
+        return new Strategy() {
+            @Override
+            public HttpResponse process(HttpRequest request, HttpResponse response) {
+                // потоковые ответы не буферизуем ради логирования тела; решение принимается до записи ответа,
+                // поэтому поток событий узнается по пути, а не по типу содержимого
+                boolean streaming = isStreamRequested(request.getQuery())
+                        || request.getPath().endsWith("/feed/stream");
+                return streaming ? response.withoutBody() : response;
+            }
+        };
+    }
+
+    private static boolean isStreamRequested(String query) {
+        return UriComponentsBuilder.newInstance().query(query).build()
+                .getQueryParams().getOrDefault("stream", List.of()).contains("true");
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * Непрозрачные курсоры для keyset-пагинации: курсор кодирует идентификатор последнего отданного элемента.
+ */
+final class Cursors {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String PREFIX = "id:";
+
+    private Cursors() {
+    }
+
+    static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            long id = Long.parseLong(decoded.substring(PREFIX.length()));
+            if (id < 0) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+        }
+    }
+
+    /**
+     * Курсор для сущностей с идентификатором типа int.
+     */
+    static int decodeInt(String cursor) {
+        long id = decode(cursor);
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        return (int) id;
+    }
+
+    static String encode(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static <T> ResponseEntity<Collection<T>> page(Collection<T> items, int limit, ToLongFunction<T> idExtractor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (items.size() >= limit) {
+            T last = items.stream().reduce((first, second) -> second).orElseThrow();
+            response.header(NEXT_CURSOR_HEADER, encode(idExtractor.applyAsLong(last)));
+        }
+        return response.body(items);
+    }
+}
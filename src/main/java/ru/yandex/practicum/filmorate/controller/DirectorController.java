@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,6 +14,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Director;
@@ -20,17 +24,25 @@ import java.util.Collection;
 
 @RestController
 @RequestMapping("/directors")
+@Validated
 @RequiredArgsConstructor
 @Slf4j
 public class DirectorController {
     private final DirectorService directorService;
 
     @GetMapping
-    public Collection<Director> getAll() {
-        log.info("GET /directors request");
-        Collection<Director> directors = directorService.getAll();
-        log.info("GET /directors response: {}", directors.size());
-        return directors;
+    public ResponseEntity<Collection<Director>> getAll(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+                                                       @RequestParam(defaultValue = "false") boolean all) {
+        log.info("GET /directors?cursor={}, limit={}, all={} request", cursor, limit, all);
+        if (all) {
+            Collection<Director> directors = directorService.getAll();
+            log.info("GET /directors?all=true response: {}", directors.size());
+            return ResponseEntity.ok(directors);
+        }
+        Collection<Director> directors = directorService.getAll(Cursors.decodeInt(cursor), limit);
+        log.info("GET /directors?cursor={}, limit={} response: {}", cursor, limit, directors.size());
+        return Cursors.page(directors, limit, Director::getId);
     }
 
     @GetMapping("/{directorId}")
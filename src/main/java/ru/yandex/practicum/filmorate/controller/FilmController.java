@@ -1,8 +1,14 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,10 +19,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/films")
@@ -25,13 +34,27 @@ import java.util.Collection;
 @Slf4j
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<Film> getAll() {
-        log.info("GET /films request");
-        Collection<Film> films = filmService.getAll();
-        log.info("GET /films response: {}", films.size());
-        return films;
+    public ResponseEntity<Collection<Film>> getAll(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+                                                   @RequestParam(defaultValue = "false") boolean all) {
+        log.info("GET /films?cursor={}, limit={}, all={} request", cursor, limit, all);
+        if (all) {
+            Collection<Film> films = filmService.getAll();
+            log.info("GET /films?all=true response: {}", films.size());
+            return ResponseEntity.ok(films);
+        }
+        Collection<Film> films = filmService.getAll(Cursors.decode(cursor), limit);
+        log.info("GET /films?cursor={}, limit={} response: {}", cursor, limit, films.size());
+        return Cursors.page(films, limit, Film::getId);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("GET /films?stream=true request");
+        return JsonStreams.jsonArray(objectMapper, Film.class, filmService::streamAll);
     }
 
     @GetMapping("/director/{directorId}")
@@ -106,12 +129,42 @@ public class FilmController {
         return films;
     }
 
+    @GetMapping(value = "/common", params = "userIds")
+    public Collection<Film> getCommonFilms(@RequestParam @NotEmpty @Size(max = 100) List<Long> userIds) {
+        log.info("GET /films/common?userIds={} request", userIds);
+        Collection<Film> films = filmService.getCommonFilms(userIds);
+        log.info("GET /films/common?userIds={} response: {}", userIds, films.size());
+        return films;
+    }
+
     @GetMapping("/search")
     public Collection<Film> search(@RequestParam(name = "query") String keyword,
-                                   @RequestParam(name = "by") String params) {
-        log.info("GET /films/search?query={}, by={} request", keyword, params);
-        Collection<Film> films = filmService.search(keyword, params);
-        log.info("GET /films/search?query={}, by={} response: {}", keyword, params, films.size());
+                                   @RequestParam(name = "by") String params,
+                                   @RequestParam(defaultValue = "false") boolean fuzzy,
+                                   @RequestParam(required = false) @PositiveOrZero Double popularityWeight) {
+        log.info("GET /films/search?query={}, by={}, fuzzy={}, popularityWeight={} request",
+                keyword, params, fuzzy, popularityWeight);
+        Collection<Film> films = filmService.search(keyword, params, fuzzy, popularityWeight);
+        log.info("GET /films/search?query={}, by={}, fuzzy={}, popularityWeight={} response: {}",
+                keyword, params, fuzzy, popularityWeight, films.size());
         return films;
     }
+
+    @GetMapping("/{id}/similar")
+    public Collection<Film> getSimilar(@PathVariable long id,
+                                       @RequestParam(defaultValue = "10") @Min(1) @Max(50) int count) {
+        log.info("GET /films/{}/similar?count={} request", id, count);
+        Collection<Film> films = filmService.getSimilar(id, count);
+        log.info("GET /films/{}/similar?count={} response: {}", id, count, films.size());
+        return films;
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Suggestion> autocomplete(@RequestParam String prefix,
+                                         @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit) {
+        log.debug("GET /films/autocomplete?prefix={}, limit={} request", prefix, limit);
+        List<Suggestion> suggestions = filmService.autocomplete(prefix, limit);
+        log.debug("GET /films/autocomplete?prefix={}, limit={} response: {}", prefix, limit, suggestions.size());
+        return suggestions;
+    }
 }
\ No newline at end of file
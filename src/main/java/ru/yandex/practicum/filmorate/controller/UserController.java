@@ -1,7 +1,12 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,11 +14,17 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.service.FeedBroadcaster;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -25,13 +36,28 @@ import java.util.Collection;
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final FeedBroadcaster feedBroadcaster;
 
     @GetMapping
-    public Collection<User> getAll() {
-        log.info("GET /users request");
-        Collection<User> users = userService.getAll();
-        log.info("GET /users response: {}", users.size());
-        return users;
+    public ResponseEntity<Collection<User>> getAll(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+                                                   @RequestParam(defaultValue = "false") boolean all) {
+        log.info("GET /users?cursor={}, limit={}, all={} request", cursor, limit, all);
+        if (all) {
+            Collection<User> users = userService.getAll();
+            log.info("GET /users?all=true response: {}", users.size());
+            return ResponseEntity.ok(users);
+        }
+        Collection<User> users = userService.getAll(Cursors.decode(cursor), limit);
+        log.info("GET /users?cursor={}, limit={} response: {}", cursor, limit, users.size());
+        return Cursors.page(users, limit, User::getId);
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("GET /users?stream=true request");
+        return JsonStreams.jsonArray(objectMapper, User.class, userService::streamAll);
     }
 
     @GetMapping("/{userId}")
@@ -80,11 +106,19 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public Collection<User> getFriends(@PathVariable long id) {
-        log.info("GET /users/{}/friends request", id);
-        Collection<User> userFriends = userService.getFriends(id);
-        log.info("GET /users/{}/friends response: {}", id, userFriends);
-        return userFriends;
+    public ResponseEntity<Collection<User>> getFriends(@PathVariable long id,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit,
+                                                       @RequestParam(defaultValue = "false") boolean all) {
+        log.info("GET /users/{}/friends?cursor={}, limit={}, all={} request", id, cursor, limit, all);
+        if (all) {
+            Collection<User> userFriends = userService.getFriends(id);
+            log.info("GET /users/{}/friends?all=true response: {}", id, userFriends);
+            return ResponseEntity.ok(userFriends);
+        }
+        Collection<User> userFriends = userService.getFriends(id, Cursors.decode(cursor), limit);
+        log.info("GET /users/{}/friends?cursor={}, limit={} response: {}", id, cursor, limit, userFriends);
+        return Cursors.page(userFriends, limit, User::getId);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -95,19 +129,101 @@ public class UserController {
         return commonFriends;
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public Collection<User> getFriendSuggestions(@PathVariable long id,
+                                                 @RequestParam(defaultValue = "10") @Min(1) @Max(100) int count) {
+        log.info("GET /users/{}/friends/suggestions?count={} request", id, count);
+        Collection<User> users = userService.getFriendSuggestions(id, count);
+        log.info("GET /users/{}/friends/suggestions?count={} response: {}", id, count, users.size());
+        return users;
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    public FriendshipPath getFriendshipPath(@PathVariable long id, @PathVariable long otherId) {
+        log.info("GET /users/{}/path/{} request", id, otherId);
+        FriendshipPath path = userService.getFriendshipPath(id, otherId);
+        log.info("GET /users/{}/path/{} response: {}", id, otherId, path.getLength());
+        return path;
+    }
+
+    @GetMapping("/{id}/similar")
+    public Collection<User> getSimilar(@PathVariable long id,
+                                       @RequestParam(defaultValue = "10") @Min(1) @Max(50) int count) {
+        log.info("GET /users/{}/similar?count={} request", id, count);
+        Collection<User> users = userService.getSimilar(id, count);
+        log.info("GET /users/{}/similar?count={} response: {}", id, count, users.size());
+        return users;
+    }
+
     @GetMapping("/{userId}/recommendations")
-    public Collection<Film> getFilmRecommendations(@PathVariable long userId) {
-        log.info("GET /users/{}/recommendations request", userId);
-        Collection<Film> recommendedFilms = userService.getFilmRecommendations(userId);
-        log.info("GET /users/{}/recommendations response: {}", userId, recommendedFilms);
+    public Collection<Film> getFilmRecommendations(@PathVariable long userId,
+                                                   @RequestParam(defaultValue = "10") @Min(1) @Max(100) int count,
+                                                   @RequestParam(defaultValue = "neighbours") String mode) {
+        log.info("GET /users/{}/recommendations?count={}, mode={} request", userId, count, mode);
+        Collection<Film> recommendedFilms = userService.getFilmRecommendations(userId, count, mode);
+        log.info("GET /users/{}/recommendations?count={}, mode={} response: {}", userId, count, mode,
+                recommendedFilms);
         return recommendedFilms;
     }
 
+    @GetMapping(value = "/{userId}/feed", params = "all=true")
+    public ResponseEntity<StreamingResponseBody> streamUserFeed(@PathVariable Long userId) {
+        log.info("GET /users/{}/feed?all=true request", userId);
+        return JsonStreams.jsonArray(objectMapper, Event.class, userService.streamFeed(userId));
+    }
+
+    @GetMapping(value = "/{userId}/feed/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeedEvents(@PathVariable Long userId,
+                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("GET /users/{}/feed/stream, Last-Event-ID={} request", userId, lastEventId);
+        return feedBroadcaster.subscribe(userId, parseLastEventId(lastEventId));
+    }
+
     @GetMapping("/{userId}/feed")
-    public Collection<Event> getUserFeed(@PathVariable Long userId) {
-        log.info("GET /users/{}/feed request", userId);
-        Collection<Event> events = userService.getFeed(userId);
-        log.info("GET /users/{}/feed response: {}", userId, events);
+    public ResponseEntity<Collection<Event>> getUserFeed(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit) {
+        log.info("GET /users/{}/feed?cursor={}, before={}, limit={} request", userId, cursor, before, limit);
+        if (before != null) {
+            if (cursor != null) {
+                throw new IllegalArgumentException("Параметры cursor и before нельзя указывать одновременно");
+            }
+            // от новых событий к старым: пустой before - с самого нового, следующая страница -
+            // before с идентификатором последнего отданного события
+            long beforeId = before.isBlank() ? Long.MAX_VALUE : Long.parseLong(before);
+            Collection<Event> events = userService.getFeedBefore(userId, beforeId, limit);
+            log.info("GET /users/{}/feed?before={}, limit={} response: {}", userId, before, limit, events.size());
+            return ResponseEntity.ok(events);
+        }
+        Collection<Event> events = userService.getFeed(userId, Cursors.decode(cursor), limit);
+        log.info("GET /users/{}/feed?cursor={}, limit={} response: {}", userId, cursor, limit, events.size());
+        return Cursors.page(events, limit, Event::getEventId);
+    }
+
+    @GetMapping("/{userId}/timeline")
+    public Collection<Event> getTimeline(@PathVariable Long userId,
+                                         @RequestParam(required = false) Long before,
+                                         @RequestParam(defaultValue = "50") @Min(1) @Max(100) int limit) {
+        log.info("GET /users/{}/timeline?before={}, limit={} request", userId, before, limit);
+        Collection<Event> events = userService.getTimeline(userId, before == null ? Long.MAX_VALUE : before, limit);
+        log.info("GET /users/{}/timeline?before={}, limit={} response: {}", userId, before, limit, events.size());
         return events;
     }
-}
\ No newline at end of file
+
+    private static Long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            long id = Long.parseLong(lastEventId.strip());
+            if (id >= 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // ниже - то же сообщение, что и для отрицательного идентификатора
+        }
+        throw new IllegalArgumentException("Некорректный Last-Event-ID: " + lastEventId);
+    }
+}
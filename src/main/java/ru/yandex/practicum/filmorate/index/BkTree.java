@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * BK-дерево строк по расстоянию Левенштейна. Удаление не поддерживается: устаревшие слова
+ * остаются в дереве, и вызывающий сам отсеивает их по своим спискам.
+ */
+final class BkTree {
+    private Node root;
+
+    /**
+     * @return {@code false}, если такое слово уже есть
+     */
+    boolean add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            return true;
+        }
+        int[][] rows = rows(term);
+        Node node = root;
+        while (true) {
+            int distance = distance(node.term, term, rows);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, new Node(term));
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Передает в {@code action} все слова на расстоянии не больше {@code maxDistance} от {@code query}.
+     * Просматривается не больше {@code maxVisits} узлов, после чего поиск прекращается.
+     *
+     * @return число просмотренных узлов; равенство {@code maxVisits} означает, что бюджет мог быть исчерпан
+     */
+    int search(String query, int maxDistance, int maxVisits, Consumer<String> action) {
+        if (root == null) {
+            return 0;
+        }
+        int[][] rows = rows(query);
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        int visits = 0;
+        while (!pending.isEmpty() && visits < maxVisits) {
+            visits++;
+            Node node = pending.pop();
+            int distance = distance(node.term, query, rows);
+            if (distance <= maxDistance) {
+                action.accept(node.term);
+            }
+            // по неравенству треугольника подходящие слова могут быть только в ветках [d - k, d + k]
+            int lastEdge = Math.min(distance + maxDistance, node.children.length - 1);
+            for (int edge = Math.max(1, distance - maxDistance); edge <= lastEdge; edge++) {
+                Node child = node.children[edge];
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+        return visits;
+    }
+
+    private static int[][] rows(String second) {
+        return new int[][]{new int[second.length() + 1], new int[second.length() + 1]};
+    }
+
+    /**
+     * Расстояние Левенштейна по двум строкам таблицы; буферы {@code rows} переиспользуются
+     * между вызовами с одной и той же второй строкой.
+     */
+    private static int distance(String first, String second, int[][] rows) {
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final String term;
+        // потомки по расстоянию до этого узла; расстояние ограничено длиной слов, поэтому массив короткий
+        private Node[] children = NO_CHILDREN;
+
+        private Node(String term) {
+            this.term = term;
+        }
+
+        private Node child(int distance) {
+            return distance < children.length ? children[distance] : null;
+        }
+
+        private void setChild(int distance, Node child) {
+            if (distance >= children.length) {
+                children = Arrays.copyOf(children, distance + 1);
+            }
+            children[distance] = child;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Получатель изменений каталога. Сервисы вызывают его после успешной записи в базу,
+ * чтобы индексы в памяти оставались согласованными с таблицами.
+ */
+public interface CatalogListener {
+    default void onFilmSaved(Film film) {
+    }
+
+    default void onFilmDeleted(long filmId) {
+    }
+
+    default void onDirectorSaved(Director director) {
+    }
+
+    default void onDirectorDeleted(int directorId) {
+    }
+
+    default void onLikeAdded(long filmId, long userId) {
+    }
+
+    default void onLikeRemoved(long filmId, long userId) {
+    }
+}
@@ -0,0 +1,355 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.SuggestionType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Подсказки по началу слова в названиях фильмов и именах режиссеров.
+ * Для каждого слова хранится смещение его начала в тексте, а начала слов упорядочены по хвосту текста
+ * от этого смещения, поэтому подсказки по префиксу - это диапазон упорядоченного множества.
+ * Ранжирование идет по лайкам фильма, для режиссера - по сумме лайков его фильмов; обе величины
+ * поддерживаются при каждом лайке, а все подсказки дополнительно упорядочены по ним.
+ */
+@Component
+@Slf4j
+public class FilmAutocompleteIndex implements CatalogListener, RebuildableIndex {
+    private static final Comparator<Target> TARGET_ORDER = Comparator.comparing(Target::type)
+            .thenComparingLong(Target::id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State();
+
+    @Value("${filmorate.autocomplete.candidate-budget}")
+    private int candidateBudget;
+
+    /**
+     * Возвращает до {@code limit} подсказок, у которых какое-либо слово начинается с {@code prefix}.
+     * Если диапазон префикса не больше {@code filmorate.autocomplete.candidate-budget} кандидатов, они
+     * ранжируются целиком; иначе, обычно для коротких префиксов, подсказки перебираются в порядке лайков
+     * до первых {@code limit} подходящих. Ранжирование точное в обоих случаях.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix).strip();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Set<Target> candidates = new LinkedHashSet<>();
+            boolean complete = true;
+            for (WordStart start : state.wordStarts.tailSet(new WordStart(normalized, 0, null), true)) {
+                if (!start.startsWith(normalized)) {
+                    break;
+                }
+                if (candidates.size() >= candidateBudget) {
+                    complete = false;
+                    break;
+                }
+                candidates.add(start.target());
+            }
+            List<Target> ranked = complete ? best(candidates, limit) : state.firstMatching(normalized, limit);
+            return ranked.stream()
+                    .map(target -> new Suggestion(target.type(), target.id(), state.names.get(target)))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Target> best(Collection<Target> candidates, int limit) {
+        // в куче остаются лучшие limit кандидатов, наверху худший из них
+        PriorityQueue<Target> best = new PriorityQueue<>(limit + 1, state.byRank.reversed());
+        for (Target target : candidates) {
+            best.add(target);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return best.stream().sorted(state.byRank).toList();
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Collection<Film> films, Collection<Director> directors) {
+        State fresh = new State();
+        directors.forEach(fresh::putDirector);
+        films.forEach(fresh::putFilm);
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("AUTOCOMPLETE-INDEX. Индекс подсказок построен, начал слов: {}", fresh.wordStarts.size());
+    }
+
+    @Override
+    public void onFilmSaved(Film film) {
+        update(current -> current.putFilm(film));
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(current -> current.removeFilm(filmId));
+    }
+
+    @Override
+    public void onDirectorSaved(Director director) {
+        update(current -> current.putDirector(director));
+    }
+
+    @Override
+    public void onDirectorDeleted(int directorId) {
+        update(current -> current.removeDirector(directorId));
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        changeLikes(filmId, 1);
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        changeLikes(filmId, -1);
+    }
+
+    private void changeLikes(long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            state.changeLikes(filmId, delta);
+            // лайк мог попасть и в снимок, поэтому новому состоянию передается итоговое число
+            Long likes = state.filmLikes.get(filmId);
+            if (likes != null) {
+                pending.record(fresh -> fresh.setLikes(filmId, likes));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static IntStream wordOffsets(String text) {
+        return IntStream.range(0, text.length())
+                .filter(i -> (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))
+                        && Character.isLetterOrDigit(text.charAt(i)));
+    }
+
+    private record Target(SuggestionType type, long id) {
+    }
+
+    /**
+     * Начало слова: текст не копируется, сравнивается его хвост от смещения. Без цели - ключ поиска,
+     * он меньше всех начал с тем же хвостом.
+     */
+    private record WordStart(String text, int offset, Target target) implements Comparable<WordStart> {
+        boolean startsWith(String prefix) {
+            return text.startsWith(prefix, offset);
+        }
+
+        @Override
+        public int compareTo(WordStart other) {
+            int i = offset;
+            int j = other.offset;
+            while (i < text.length() && j < other.text.length()) {
+                int diff = Character.compare(text.charAt(i++), other.text.charAt(j++));
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            int diff = Integer.compare(text.length() - i, other.text.length() - j);
+            if (diff != 0 || target == other.target) {
+                return diff;
+            }
+            if (target == null || other.target == null) {
+                return target == null ? -1 : 1;
+            }
+            return TARGET_ORDER.compare(target, other.target);
+        }
+    }
+
+    private static final class State {
+        // порядок по лайкам читает счетчики, поэтому цель убирается из ranked до их изменения
+        private final Comparator<Target> byRank = Comparator.comparingLong(this::rank).reversed()
+                .thenComparing(TARGET_ORDER);
+        private final NavigableSet<WordStart> wordStarts = new TreeSet<>();
+        private final NavigableSet<Target> ranked = new TreeSet<>(byRank);
+        private final Map<Target, String> names = new HashMap<>();
+        private final Map<Target, String> texts = new HashMap<>();
+        private final Map<Long, Set<Long>> filmDirectors = new HashMap<>();
+        private final Map<Long, Set<Long>> directorFilms = new HashMap<>();
+        private final Map<Long, Long> filmLikes = new HashMap<>();
+        private final Map<Long, Long> directorLikes = new HashMap<>();
+
+        long rank(Target target) {
+            Map<Long, Long> likes = target.type() == SuggestionType.FILM ? filmLikes : directorLikes;
+            return likes.getOrDefault(target.id(), 0L);
+        }
+
+        List<Target> firstMatching(String prefix, int limit) {
+            List<Target> result = new ArrayList<>(limit);
+            for (Target target : ranked) {
+                String text = texts.get(target);
+                if (wordOffsets(text).anyMatch(offset -> text.startsWith(prefix, offset))) {
+                    result.add(target);
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        void changeLikes(long filmId, long delta) {
+            if (!filmLikes.containsKey(filmId)) {
+                return;
+            }
+            addLikes(new Target(SuggestionType.FILM, filmId), filmLikes, delta);
+            filmDirectors.get(filmId).forEach(directorId ->
+                    addLikes(new Target(SuggestionType.DIRECTOR, directorId), directorLikes, delta));
+        }
+
+        void setLikes(long filmId, long likes) {
+            Long current = filmLikes.get(filmId);
+            if (current != null) {
+                changeLikes(filmId, likes - current);
+            }
+        }
+
+        void putFilm(Film film) {
+            // при обновлении фильма клиент не передает число лайков, поэтому сохраняется прежнее значение
+            long likes = filmLikes.getOrDefault(film.getId(), (long) film.getLikeCount());
+            removeFilm(film.getId());
+            filmLikes.put(film.getId(), likes);
+            put(new Target(SuggestionType.FILM, film.getId()), film.getName());
+
+            Set<Long> directorIds = new HashSet<>();
+            if (film.getDirectors() != null) {
+                film.getDirectors().forEach(director -> directorIds.add(director.getId().longValue()));
+            }
+            filmDirectors.put(film.getId(), directorIds);
+            directorIds.forEach(directorId -> {
+                directorFilms.computeIfAbsent(directorId, key -> new HashSet<>()).add(film.getId());
+                addLikes(new Target(SuggestionType.DIRECTOR, directorId), directorLikes, likes);
+            });
+        }
+
+        void removeFilm(long filmId) {
+            remove(new Target(SuggestionType.FILM, filmId));
+            long likes = filmLikes.getOrDefault(filmId, 0L);
+            filmLikes.remove(filmId);
+            Set<Long> directorIds = filmDirectors.remove(filmId);
+            if (directorIds != null) {
+                directorIds.forEach(directorId -> {
+                    Set<Long> films = directorFilms.get(directorId);
+                    if (films != null) {
+                        films.remove(filmId);
+                    }
+                    addLikes(new Target(SuggestionType.DIRECTOR, directorId), directorLikes, -likes);
+                });
+            }
+        }
+
+        void putDirector(Director director) {
+            Target target = new Target(SuggestionType.DIRECTOR, director.getId());
+            remove(target);
+            put(target, director.getName());
+        }
+
+        void removeDirector(int directorId) {
+            remove(new Target(SuggestionType.DIRECTOR, directorId));
+            directorLikes.remove((long) directorId);
+            // связи фильмов с режиссером удаляются каскадно вместе с ним
+            Set<Long> films = directorFilms.remove((long) directorId);
+            if (films != null) {
+                films.forEach(filmId -> {
+                    Set<Long> directorIds = filmDirectors.get(filmId);
+                    if (directorIds != null) {
+                        directorIds.remove((long) directorId);
+                    }
+                });
+            }
+        }
+
+        private void addLikes(Target target, Map<Long, Long> likes, long delta) {
+            boolean indexed = ranked.remove(target);
+            likes.merge(target.id(), delta, Long::sum);
+            if (indexed) {
+                ranked.add(target);
+            }
+        }
+
+        private void put(Target target, String name) {
+            String text = normalize(name);
+            names.put(target, name);
+            texts.put(target, text);
+            ranked.add(target);
+            wordOffsets(text).forEach(offset -> wordStarts.add(new WordStart(text, offset, target)));
+        }
+
+        private void remove(Target target) {
+            String text = texts.remove(target);
+            if (text == null) {
+                return;
+            }
+            names.remove(target);
+            ranked.remove(target);
+            wordOffsets(text).forEach(offset -> wordStarts.remove(new WordStart(text, offset, target)));
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Полнотекстовый индекс описаний фильмов с ранжированием BM25.
+ * Для каждого слова хранится список фильмов, для каждого фильма - частоты его слов и длина описания,
+ * поэтому оценка считается только по фильмам, в описании которых есть хотя бы одно слово запроса.
+ * Списки обходятся от редких слов к частым, и обход прекращается, как только фильмы с одними
+ * оставшимися словами уже не могут попасть в результат.
+ */
+@Component
+@Slf4j
+public class FilmDescriptionIndex implements CatalogListener, RebuildableIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State();
+
+    @Value("${filmorate.search.description.max-results}")
+    private int maxResults;
+
+    /**
+     * @param popularityWeight вес {@code log(1 + лайки)}, добавляемого к оценке BM25; 0 - чистый BM25
+     * @return не больше {@code filmorate.search.description.max-results} фильмов по убыванию оценки
+     */
+    public List<Long> search(String keyword, double popularityWeight) {
+        List<String> queryTerms = TextTokenizer.tokenize(keyword).stream()
+                .distinct()
+                .toList();
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return state.search(queryTerms, popularityWeight, maxResults);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Collection<Film> films) {
+        State fresh = new State();
+        films.forEach(fresh::putFilm);
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("DESCRIPTION-INDEX. Индекс описаний построен, фильмов: {}, слов: {}",
+                fresh.documentCount, fresh.termIds.size());
+    }
+
+    @Override
+    public void onFilmSaved(Film film) {
+        update(current -> current.putFilm(film));
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(current -> current.removeFilm(filmId));
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        changeLikes(filmId, 1);
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        changeLikes(filmId, -1);
+    }
+
+    private void changeLikes(long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Document document = state.document(Math.toIntExact(filmId));
+            if (document != null) {
+                int likes = Math.max(0, document.likes + delta);
+                state.setLikes(document, likes);
+                // лайк мог попасть и в снимок, поэтому новому состоянию передается итоговое число
+                pending.record(fresh -> {
+                    Document freshDocument = fresh.document(Math.toIntExact(filmId));
+                    if (freshDocument != null) {
+                        fresh.setLikes(freshDocument, likes);
+                    }
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private record Scored(int filmId, double score) {
+    }
+
+    /**
+     * Слова описания хранятся отсортированными идентификаторами словаря, частота - в параллельном массиве.
+     */
+    private static final class Document {
+        private final int[] terms;
+        private final int[] frequencies;
+        private final int length;
+        private int likes;
+
+        private Document(int[] terms, int[] frequencies, int length, int likes) {
+            this.terms = terms;
+            this.frequencies = frequencies;
+            this.length = length;
+            this.likes = likes;
+        }
+
+        int frequency(int termId) {
+            int position = Arrays.binarySearch(terms, termId);
+            return position < 0 ? 0 : frequencies[position];
+        }
+    }
+
+    private static final class State {
+        // идентификаторы слов не освобождаются: словарь сжимается только при перестроении
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final List<RoaringBitmap> postings = new ArrayList<>();
+        // идентификаторы фильмов выдаются базой подряд, поэтому документы лежат в массиве по идентификатору
+        private Document[] documents = new Document[1024];
+        private int documentCount;
+        private long totalLength;
+        // верхняя граница лайков для отсечения; при снятии лайков не уменьшается
+        private int maxLikes;
+
+        Document document(int filmId) {
+            return filmId < documents.length ? documents[filmId] : null;
+        }
+
+        void setLikes(Document document, int likes) {
+            document.likes = likes;
+            maxLikes = Math.max(maxLikes, likes);
+        }
+
+        List<Long> search(List<String> queryTerms, double popularityWeight, int limit) {
+            List<Integer> matchedTerms = new ArrayList<>();
+            for (String term : queryTerms) {
+                Integer termId = termIds.get(term);
+                if (termId != null && !postings.get(termId).isEmpty()) {
+                    matchedTerms.add(termId);
+                }
+            }
+            if (matchedTerms.isEmpty()) {
+                return List.of();
+            }
+            matchedTerms.sort(Comparator.comparingInt(termId -> postings.get(termId).getCardinality()));
+
+            int termCount = matchedTerms.size();
+            int[] terms = new int[termCount];
+            double[] idf = new double[termCount];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = matchedTerms.get(i);
+                int frequency = postings.get(terms[i]).getCardinality();
+                idf[i] = Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5));
+            }
+            // вклад слова не превышает idf * (k1 + 1), вклад популярности - веса на логарифм максимума лайков
+            double[] remainingBound = new double[termCount + 1];
+            remainingBound[termCount] = popularityWeight * Math.log1p(maxLikes);
+            for (int i = termCount - 1; i >= 0; i--) {
+                remainingBound[i] = remainingBound[i + 1] + idf[i] * (K1 + 1);
+            }
+
+            double averageLength = Math.max(1.0, (double) totalLength / documentCount);
+            // в куче остаются лучшие limit фильмов, наверху худший из них
+            Comparator<Scored> byScore = Comparator.comparingDouble(Scored::score).reversed()
+                    .thenComparingInt(Scored::filmId);
+            PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1, byScore.reversed());
+            RoaringBitmap scored = new RoaringBitmap();
+            for (int i = 0; i < termCount; i++) {
+                if (best.size() == limit && remainingBound[i] <= best.peek().score()) {
+                    break;
+                }
+                RoaringBitmap fresh = RoaringBitmap.andNot(postings.get(terms[i]), scored);
+                fresh.forEach((int filmId) -> {
+                    Document document = documents[filmId];
+                    double norm = K1 * (1 - B + B * document.length / averageLength);
+                    double score = popularityWeight * Math.log1p(document.likes);
+                    for (int j = 0; j < termCount; j++) {
+                        int frequency = document.frequency(terms[j]);
+                        if (frequency > 0) {
+                            score += idf[j] * frequency * (K1 + 1) / (frequency + norm);
+                        }
+                    }
+                    if (best.size() < limit) {
+                        best.add(new Scored(filmId, score));
+                    } else if (score > best.peek().score()) {
+                        best.poll();
+                        best.add(new Scored(filmId, score));
+                    }
+                });
+                scored.or(fresh);
+            }
+            return best.stream()
+                    .sorted(byScore)
+                    .map(result -> (long) result.filmId())
+                    .toList();
+        }
+
+        void putFilm(Film film) {
+            int filmId = Math.toIntExact(film.getId());
+            Document previous = document(filmId);
+            // при обновлении фильма клиент не передает число лайков, поэтому сохраняется прежнее значение
+            int likes = previous == null ? film.getLikeCount() : previous.likes;
+            removeFilm(filmId);
+
+            List<String> tokens = TextTokenizer.tokenize(film.getDescription());
+            TreeMap<Integer, Integer> frequencies = new TreeMap<>();
+            tokens.forEach(token -> frequencies.merge(termId(token), 1, Integer::sum));
+            int[] terms = new int[frequencies.size()];
+            int[] counts = new int[frequencies.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> entry : frequencies.entrySet()) {
+                terms[i] = entry.getKey();
+                counts[i] = entry.getValue();
+                postings.get(entry.getKey()).add(filmId);
+                i++;
+            }
+            if (filmId >= documents.length) {
+                documents = Arrays.copyOf(documents, Math.max(filmId + 1, documents.length * 2));
+            }
+            documents[filmId] = new Document(terms, counts, tokens.size(), likes);
+            documentCount++;
+            totalLength += tokens.size();
+            maxLikes = Math.max(maxLikes, likes);
+        }
+
+        void removeFilm(long id) {
+            int filmId = Math.toIntExact(id);
+            Document document = document(filmId);
+            if (document == null) {
+                return;
+            }
+            documents[filmId] = null;
+            documentCount--;
+            for (int termId : document.terms) {
+                postings.get(termId).remove(filmId);
+            }
+            totalLength -= document.length;
+        }
+
+        private int termId(String term) {
+            return termIds.computeIfAbsent(term, key -> {
+                postings.add(new RoaringBitmap());
+                return postings.size() - 1;
+            });
+        }
+    }
+}
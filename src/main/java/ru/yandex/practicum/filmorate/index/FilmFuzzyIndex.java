@@ -0,0 +1,299 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Нечеткий поиск по словам названий фильмов и имен режиссеров. Словарь всех слов хранится
+ * в BK-деревьях, по одному на длину слова, каждое слово запроса сопоставляется словам словаря
+ * в пределах допустимого расстояния Левенштейна, а фильм подходит, если совпали все слова запроса.
+ */
+@Component
+@Slf4j
+public class FilmFuzzyIndex implements CatalogListener, RebuildableIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State();
+
+    @Value("${filmorate.search.fuzzy.max-distance}")
+    private int maxDistance;
+
+    @Value("${filmorate.search.fuzzy.max-visits}")
+    private int maxVisits;
+
+    @Value("${filmorate.search.fuzzy.max-query-tokens}")
+    private int maxQueryTokens;
+
+    /**
+     * @return идентификаторы фильмов в порядке возрастания
+     */
+    public List<Long> search(String keyword, boolean byTitle, boolean byDirector) {
+        List<String> queryTokens = TextTokenizer.tokenize(keyword).stream()
+                .distinct()
+                .limit(maxQueryTokens)
+                .toList();
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap titleMatches = byTitle ? null : new RoaringBitmap();
+            RoaringBitmap directorMatches = byDirector ? null : new RoaringBitmap();
+            for (String queryToken : queryTokens) {
+                Set<String> terms = similarTerms(queryToken);
+                if (byTitle) {
+                    titleMatches = intersect(titleMatches, state.titleMatches(terms));
+                }
+                if (byDirector) {
+                    directorMatches = intersect(directorMatches, state.directorMatches(terms));
+                }
+            }
+            RoaringBitmap found = RoaringBitmap.or(titleMatches, directorMatches);
+            List<Long> filmIds = new ArrayList<>(found.getCardinality());
+            found.forEach((int filmId) -> filmIds.add((long) filmId));
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Collection<Film> films, Collection<Director> directors) {
+        State fresh = new State();
+        directors.forEach(director -> fresh.putDirector(director.getId(), director.getName()));
+        films.forEach(fresh::putFilm);
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("FUZZY-INDEX. Словарь нечеткого поиска построен, слов: {}", fresh.termCount());
+    }
+
+    @Override
+    public void onFilmSaved(Film film) {
+        update(current -> current.putFilm(film));
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(current -> current.removeFilm(filmId));
+    }
+
+    @Override
+    public void onDirectorSaved(Director director) {
+        update(current -> current.putDirector(director.getId(), director.getName()));
+    }
+
+    @Override
+    public void onDirectorDeleted(int directorId) {
+        update(current -> current.removeDirector(directorId));
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<String> similarTerms(String queryToken) {
+        Set<String> terms = new HashSet<>();
+        int distance = allowedDistance(queryToken);
+        int budget = maxVisits;
+        // расстояние не меньше разницы длин, поэтому смотрятся только деревья соседних длин,
+        // начиная с совпадающей: замена символа - самая частая опечатка
+        for (int shift = 0; shift <= distance && budget > 0; shift++) {
+            for (int length : shift == 0
+                    ? new int[]{queryToken.length()}
+                    : new int[]{queryToken.length() - shift, queryToken.length() + shift}) {
+                BkTree tree = state.terms.get(length);
+                if (tree != null && budget > 0) {
+                    budget -= tree.search(queryToken, distance, budget, terms::add);
+                }
+            }
+        }
+        if (budget <= 0) {
+            log.debug("FUZZY-INDEX. Исчерпан бюджет обхода словаря для слова '{}'", queryToken);
+        }
+        return terms;
+    }
+
+    /**
+     * Короткие слова сравниваются точно, длинным допускается больше опечаток.
+     */
+    private int allowedDistance(String token) {
+        int distance = token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2;
+        return Math.min(distance, maxDistance);
+    }
+
+    private static RoaringBitmap intersect(RoaringBitmap accumulated, RoaringBitmap matches) {
+        if (accumulated == null) {
+            return matches;
+        }
+        accumulated.and(matches);
+        return accumulated;
+    }
+
+    private static final class State {
+        private final Map<Integer, BkTree> terms = new HashMap<>();
+        private final Set<String> knownTerms = new HashSet<>();
+        private final Map<Integer, Set<String>> filmTokens = new HashMap<>();
+        private final Map<String, RoaringBitmap> titleTokenFilms = new HashMap<>();
+        private final Map<Integer, Set<String>> directorTokens = new HashMap<>();
+        private final Map<String, RoaringBitmap> directorTokenDirectors = new HashMap<>();
+        private final Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> directorFilms = new HashMap<>();
+
+        int termCount() {
+            return knownTerms.size();
+        }
+
+        void addTerm(String token) {
+            // большинство слов повторяется во многих названиях, спуск по дереву нужен только для новых
+            if (knownTerms.add(token)) {
+                terms.computeIfAbsent(token.length(), key -> new BkTree()).add(token);
+            }
+        }
+
+        RoaringBitmap titleMatches(Set<String> tokens) {
+            RoaringBitmap films = new RoaringBitmap();
+            tokens.forEach(token -> {
+                RoaringBitmap posting = titleTokenFilms.get(token);
+                if (posting != null) {
+                    films.or(posting);
+                }
+            });
+            return films;
+        }
+
+        RoaringBitmap directorMatches(Set<String> tokens) {
+            RoaringBitmap directors = new RoaringBitmap();
+            tokens.forEach(token -> {
+                RoaringBitmap posting = directorTokenDirectors.get(token);
+                if (posting != null) {
+                    directors.or(posting);
+                }
+            });
+            RoaringBitmap films = new RoaringBitmap();
+            directors.forEach((int directorId) -> {
+                RoaringBitmap posting = directorFilms.get(directorId);
+                if (posting != null) {
+                    films.or(posting);
+                }
+            });
+            return films;
+        }
+
+        void putFilm(Film film) {
+            int filmId = Math.toIntExact(film.getId());
+            removeFilm(filmId);
+
+            Set<String> tokens = Set.copyOf(TextTokenizer.tokenize(film.getName()));
+            filmTokens.put(filmId, tokens);
+            tokens.forEach(token -> {
+                addTerm(token);
+                titleTokenFilms.computeIfAbsent(token, key -> new RoaringBitmap()).add(filmId);
+            });
+
+            Set<Integer> directorIds = film.getDirectors() == null ? Set.of() : film.getDirectors().stream()
+                    .map(Director::getId)
+                    .collect(Collectors.toUnmodifiableSet());
+            filmDirectors.put(filmId, directorIds);
+            directorIds.forEach(directorId ->
+                    directorFilms.computeIfAbsent(directorId, key -> new RoaringBitmap()).add(filmId));
+        }
+
+        void removeFilm(long id) {
+            int filmId = Math.toIntExact(id);
+            Set<String> tokens = filmTokens.remove(filmId);
+            if (tokens != null) {
+                tokens.forEach(token -> removeFrom(titleTokenFilms, token, filmId));
+            }
+            Set<Integer> directorIds = filmDirectors.remove(filmId);
+            if (directorIds != null) {
+                directorIds.forEach(directorId -> removeFrom(directorFilms, directorId, filmId));
+            }
+        }
+
+        void putDirector(int directorId, String name) {
+            removeDirectorTokens(directorId);
+            Set<String> tokens = Set.copyOf(TextTokenizer.tokenize(name));
+            directorTokens.put(directorId, tokens);
+            tokens.forEach(token -> {
+                addTerm(token);
+                directorTokenDirectors.computeIfAbsent(token, key -> new RoaringBitmap()).add(directorId);
+            });
+        }
+
+        void removeDirector(int directorId) {
+            removeDirectorTokens(directorId);
+            // связи фильмов с режиссером удаляются каскадно вместе с ним
+            RoaringBitmap films = directorFilms.remove(directorId);
+            if (films != null) {
+                films.forEach((int filmId) -> {
+                    Set<Integer> directorIds = new HashSet<>(filmDirectors.getOrDefault(filmId, Set.of()));
+                    directorIds.remove(directorId);
+                    filmDirectors.put(filmId, Set.copyOf(directorIds));
+                });
+            }
+        }
+
+        private void removeDirectorTokens(int directorId) {
+            Set<String> tokens = directorTokens.remove(directorId);
+            if (tokens != null) {
+                tokens.forEach(token -> removeFrom(directorTokenDirectors, token, directorId));
+            }
+        }
+
+        private static <K> void removeFrom(Map<K, RoaringBitmap> postings, K key, int id) {
+            RoaringBitmap posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Упорядоченные по числу лайков множества фильмов: общее, по жанру, по году выпуска и по жанру и году.
+ */
+@Component
+@Slf4j
+public class FilmPopularityIndex implements CatalogListener, RebuildableIndex {
+    private static final Comparator<Score> BY_POPULARITY = Comparator.comparingInt(Score::likes).reversed()
+            .thenComparingLong(Score::filmId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State();
+
+    public List<Long> getMostPopular(int count, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            return top(state.partition(genreId, year), count).stream().map(Score::filmId).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Упорядочивает фильмы по убыванию числа лайков, при равенстве - по идентификатору.
+     */
+    public List<Long> orderByPopularity(Collection<Long> filmIds) {
+        lock.readLock().lock();
+        try {
+            return filmIds.stream()
+                    .map(filmId -> {
+                        Entry entry = state.entries.get(filmId);
+                        return entry == null ? new Score(filmId, 0) : entry.score;
+                    })
+                    .sorted(BY_POPULARITY)
+                    .map(Score::filmId)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLikes(long filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = state.entries.get(filmId);
+            return entry == null ? 0 : entry.score.likes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return годы выпуска фильмов в индексе по возрастанию
+     */
+    public List<Integer> getYears() {
+        lock.readLock().lock();
+        try {
+            return state.byYear.keySet().stream().sorted().toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Collection<Film> films) {
+        State fresh = new State();
+        films.forEach(film -> fresh.insert(new Entry(new Score(film.getId(), film.getLikeCount()),
+                yearOf(film), genreIdsOf(film))));
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("POPULARITY-INDEX. Индекс популярности построен, фильмов: {}", films.size());
+    }
+
+    public void addFilm(Film film) {
+        update(current -> current.putFilm(film));
+    }
+
+    public void removeFilm(long filmId) {
+        update(current -> current.removeFilm(filmId));
+    }
+
+    public void like(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void unlike(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    @Override
+    public void onFilmSaved(Film film) {
+        addFilm(film);
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        removeFilm(filmId);
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        like(filmId);
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        unlike(filmId);
+    }
+
+    /**
+     * Сравнивает первые {@code count} позиций раздела с эталонным результатом из базы. Порядок в обоих
+     * однозначен, поэтому при совпадении состава и лайков совпадает и он.
+     *
+     * @param expected фильмы раздела с числом лайков из базы
+     * @return фильмы, которые есть только в одном из результатов или расходятся числом лайков
+     */
+    public Set<Long> findDrift(Map<Long, Integer> expected, int count, Integer genreId, Integer year) {
+        Map<Long, Integer> actual = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            top(state.partition(genreId, year), count).forEach(score -> actual.put(score.filmId(), score.likes()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        Set<Long> drift = new HashSet<>();
+        expected.forEach((filmId, likes) -> {
+            if (!likes.equals(actual.get(filmId))) {
+                drift.add(filmId);
+            }
+        });
+        actual.keySet().stream()
+                .filter(filmId -> !expected.containsKey(filmId))
+                .forEach(drift::add);
+        return drift;
+    }
+
+    private void changeLikes(long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            state.changeLikes(filmId, delta);
+            // лайк мог попасть и в снимок, поэтому новому состоянию передается итоговое число
+            Entry entry = state.entries.get(filmId);
+            if (entry != null) {
+                int likes = entry.score.likes();
+                pending.record(fresh -> fresh.setLikes(filmId, likes));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void removeFrom(Map<Integer, NavigableSet<Score>> partitions, Integer key, Score score) {
+        NavigableSet<Score> partition = partitions.get(key);
+        if (partition != null) {
+            partition.remove(score);
+            if (partition.isEmpty()) {
+                partitions.remove(key);
+            }
+        }
+    }
+
+    private static List<Score> top(NavigableSet<Score> partition, int count) {
+        if (partition == null || count <= 0) {
+            return List.of();
+        }
+        List<Score> scores = new ArrayList<>(Math.min(count, partition.size()));
+        Iterator<Score> iterator = partition.iterator();
+        while (iterator.hasNext() && scores.size() < count) {
+            scores.add(iterator.next());
+        }
+        return scores;
+    }
+
+    private static Integer yearOf(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+    }
+
+    private static Set<Integer> genreIdsOf(Film film) {
+        if (film.getGenres() == null) {
+            return Set.of();
+        }
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private record Score(long filmId, int likes) {
+    }
+
+    private record Entry(Score score, Integer year, Set<Integer> genreIds) {
+    }
+
+    private static final class State {
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final NavigableSet<Score> all = new TreeSet<>(BY_POPULARITY);
+        private final Map<Integer, NavigableSet<Score>> byGenre = new HashMap<>();
+        private final Map<Integer, NavigableSet<Score>> byYear = new HashMap<>();
+        private final Map<Integer, Map<Integer, NavigableSet<Score>>> byGenreAndYear = new HashMap<>();
+
+        NavigableSet<Score> partition(Integer genreId, Integer year) {
+            if (genreId == null && year == null) {
+                return all;
+            } else if (genreId == null) {
+                return byYear.get(year);
+            } else if (year == null) {
+                return byGenre.get(genreId);
+            }
+            return byGenreAndYear.getOrDefault(genreId, Map.of()).get(year);
+        }
+
+        void putFilm(Film film) {
+            Entry previous = entries.get(film.getId());
+            if (previous != null) {
+                remove(previous);
+            }
+            int likes = previous == null ? film.getLikeCount() : previous.score.likes();
+            insert(new Entry(new Score(film.getId(), likes), yearOf(film), genreIdsOf(film)));
+        }
+
+        void removeFilm(long filmId) {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                remove(entry);
+            }
+        }
+
+        void changeLikes(long filmId, int delta) {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                setLikes(filmId, entry.score.likes() + delta);
+            }
+        }
+
+        void setLikes(long filmId, int likes) {
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                return;
+            }
+            remove(entry);
+            insert(new Entry(new Score(filmId, Math.max(0, likes)), entry.year, entry.genreIds));
+        }
+
+        void insert(Entry entry) {
+            entries.put(entry.score.filmId(), entry);
+            all.add(entry.score);
+            if (entry.year != null) {
+                byYear.computeIfAbsent(entry.year, key -> new TreeSet<>(BY_POPULARITY)).add(entry.score);
+            }
+            for (Integer genreId : entry.genreIds) {
+                byGenre.computeIfAbsent(genreId, key -> new TreeSet<>(BY_POPULARITY)).add(entry.score);
+                if (entry.year != null) {
+                    byGenreAndYear.computeIfAbsent(genreId, key -> new HashMap<>())
+                            .computeIfAbsent(entry.year, key -> new TreeSet<>(BY_POPULARITY))
+                            .add(entry.score);
+                }
+            }
+        }
+
+        private void remove(Entry entry) {
+            entries.remove(entry.score.filmId());
+            all.remove(entry.score);
+            if (entry.year != null) {
+                removeFrom(byYear, entry.year, entry.score);
+            }
+            for (Integer genreId : entry.genreIds) {
+                removeFrom(byGenre, genreId, entry.score);
+                if (entry.year != null) {
+                    Map<Integer, NavigableSet<Score>> years = byGenreAndYear.get(genreId);
+                    if (years != null) {
+                        removeFrom(years, entry.year, entry.score);
+                        if (years.isEmpty()) {
+                            byGenreAndYear.remove(genreId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Инвертированный индекс по подстрокам названий фильмов и имен режиссеров.
+ * Каждый текст раскладывается на все подстроки длиной от одного до трех символов; запрос длиной
+ * до трех символов отвечается одним списком, более длинный - пересечением списков его триграмм
+ * с последующей проверкой вхождения подстроки.
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex implements CatalogListener, RebuildableIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State();
+
+    /**
+     * Ищет фильмы, в названии или у режиссеров которых встречается подстрока без учета регистра.
+     *
+     * @return идентификаторы найденных фильмов в порядке возрастания
+     */
+    public List<Long> search(String keyword, boolean byTitle, boolean byDirector) {
+        String query = normalize(keyword);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap found = new RoaringBitmap();
+            if (byTitle) {
+                found.or(state.matchTitles(query));
+            }
+            if (byDirector) {
+                found.or(state.matchDirectors(query));
+            }
+            List<Long> filmIds = new ArrayList<>(found.getCardinality());
+            found.forEach((int filmId) -> filmIds.add((long) filmId));
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Строит индекс заново и подменяет им текущий, применив изменения, пришедшие с начала перестроения.
+     */
+    public void rebuild(Collection<Film> films, Collection<Director> directors) {
+        State fresh = new State();
+        directors.forEach(director -> fresh.putDirector(director.getId(), director.getName()));
+        films.forEach(fresh::putFilm);
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("SEARCH-INDEX. Поисковый индекс построен, фильмов: {}, режиссеров: {}, n-грамм: {}",
+                films.size(), directors.size(), fresh.titleGrams.size() + fresh.directorGrams.size());
+    }
+
+    @Override
+    public void onFilmSaved(Film film) {
+        update(current -> current.putFilm(film));
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(current -> current.removeFilm(filmId));
+    }
+
+    @Override
+    public void onDirectorSaved(Director director) {
+        update(current -> current.putDirector(director.getId(), director.getName()));
+    }
+
+    @Override
+    public void onDirectorDeleted(int directorId) {
+        update(current -> current.removeDirector(directorId));
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Перебирает все подстроки длиной до трех символов; повторы не отсеиваются, так как добавление
+     * и удаление идентификатора в списке идемпотентны.
+     */
+    static void forEachGram(String text, Consumer<String> action) {
+        for (int i = 0; i < text.length(); i++) {
+            for (int length = 1; length <= GRAM_LENGTH && i + length <= text.length(); length++) {
+                action.accept(text.substring(i, i + length));
+            }
+        }
+    }
+
+    private static final class State {
+        private final Map<Integer, String> titles = new HashMap<>();
+        private final Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+        private final Map<String, RoaringBitmap> titleGrams = new HashMap<>();
+        private final Map<Integer, String> directorNames = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> directorFilms = new HashMap<>();
+        private final Map<String, RoaringBitmap> directorGrams = new HashMap<>();
+
+        RoaringBitmap matchTitles(String query) {
+            if (query.isEmpty()) {
+                return RoaringBitmap.bitmapOf(titles.keySet().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return match(titleGrams, query, filmId -> titles.get(filmId).contains(query));
+        }
+
+        RoaringBitmap matchDirectors(String query) {
+            RoaringBitmap directorIds = query.isEmpty()
+                    ? RoaringBitmap.bitmapOf(directorNames.keySet().stream().mapToInt(Integer::intValue).toArray())
+                    : match(directorGrams, query, directorId -> directorNames.get(directorId).contains(query));
+            RoaringBitmap filmIds = new RoaringBitmap();
+            directorIds.forEach((int directorId) -> {
+                RoaringBitmap films = directorFilms.get(directorId);
+                if (films != null) {
+                    filmIds.or(films);
+                }
+            });
+            return filmIds;
+        }
+
+        void putFilm(Film film) {
+            int filmId = Math.toIntExact(film.getId());
+            removeFilm(filmId);
+
+            String title = normalize(film.getName());
+            titles.put(filmId, title);
+            forEachGram(title, gram -> titleGrams.computeIfAbsent(gram, key -> new RoaringBitmap()).add(filmId));
+
+            Set<Integer> directorIds = film.getDirectors() == null ? Set.of() : film.getDirectors().stream()
+                    .map(Director::getId)
+                    .collect(Collectors.toUnmodifiableSet());
+            filmDirectors.put(filmId, directorIds);
+            directorIds.forEach(directorId ->
+                    directorFilms.computeIfAbsent(directorId, key -> new RoaringBitmap()).add(filmId));
+        }
+
+        void removeFilm(long id) {
+            int filmId = Math.toIntExact(id);
+            String title = titles.remove(filmId);
+            if (title != null) {
+                forEachGram(title, gram -> removeFrom(titleGrams, gram, filmId));
+            }
+            Set<Integer> directorIds = filmDirectors.remove(filmId);
+            if (directorIds != null) {
+                directorIds.forEach(directorId -> removeFrom(directorFilms, directorId, filmId));
+            }
+        }
+
+        void putDirector(int directorId, String name) {
+            String previous = directorNames.put(directorId, normalize(name));
+            if (previous != null) {
+                forEachGram(previous, gram -> removeFrom(directorGrams, gram, directorId));
+            }
+            forEachGram(directorNames.get(directorId), gram ->
+                    directorGrams.computeIfAbsent(gram, key -> new RoaringBitmap()).add(directorId));
+        }
+
+        void removeDirector(int directorId) {
+            String name = directorNames.remove(directorId);
+            if (name != null) {
+                forEachGram(name, gram -> removeFrom(directorGrams, gram, directorId));
+            }
+            // связи фильмов с режиссером удаляются каскадно вместе с ним
+            RoaringBitmap films = directorFilms.remove(directorId);
+            if (films != null) {
+                films.forEach((int filmId) -> {
+                    Set<Integer> directorIds = new HashSet<>(filmDirectors.getOrDefault(filmId, Set.of()));
+                    directorIds.remove(directorId);
+                    filmDirectors.put(filmId, Set.copyOf(directorIds));
+                });
+            }
+        }
+
+        private static RoaringBitmap match(Map<String, RoaringBitmap> grams, String query, IntPredicate contains) {
+            if (query.length() <= GRAM_LENGTH) {
+                RoaringBitmap posting = grams.get(query);
+                return posting == null ? new RoaringBitmap() : posting.clone();
+            }
+
+            // пересечение начинается с самых коротких списков
+            List<RoaringBitmap> postings = new ArrayList<>();
+            for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+                RoaringBitmap posting = grams.get(query.substring(i, i + GRAM_LENGTH));
+                if (posting == null) {
+                    return new RoaringBitmap();
+                }
+                postings.add(posting);
+            }
+            postings.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+
+            RoaringBitmap candidates = postings.get(0).clone();
+            for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+                candidates.and(postings.get(i));
+            }
+
+            // совпадение всех триграмм еще не гарантирует, что они идут подряд
+            RoaringBitmap matches = new RoaringBitmap();
+            candidates.forEach((int id) -> {
+                if (contains.test(id)) {
+                    matches.add(id);
+                }
+            });
+            return matches;
+        }
+
+        private static <K> void removeFrom(Map<K, RoaringBitmap> postings, K key, int id) {
+            RoaringBitmap posting = postings.get(key);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+}
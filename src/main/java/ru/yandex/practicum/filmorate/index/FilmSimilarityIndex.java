@@ -0,0 +1,289 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Для каждого фильма хранит ограниченный список самых похожих фильмов по совместным лайкам
+ * ("кому понравился этот фильм, понравились и эти"). Сходство - косинус:
+ * {@code общие лайки / sqrt(лайки первого * лайки второго)}.
+ * Списки считаются целиком при загрузке и дальше уточняются при каждом лайке, поэтому чтение -
+ * один поиск по ключу. Пользователи с огромным числом лайков не учитываются: они связывают
+ * почти любые фильмы и только добавляют шум.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilmSimilarityIndex implements CatalogListener, RebuildableIndex {
+    private final LikeMatrix likeMatrix;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<Map<Long, Neighbours>> pending = new PendingChanges<>();
+    private Map<Long, Neighbours> neighbours = new HashMap<>();
+
+    @Value("${filmorate.similar-films.top-n}")
+    private int topN;
+
+    @Value("${filmorate.similar-films.max-user-likes}")
+    private int maxUserLikes;
+
+    @Value("${filmorate.similar-films.parallelism}")
+    private int parallelism;
+
+    /**
+     * @return до {@code count} похожих фильмов по убыванию сходства
+     */
+    public List<Long> getSimilar(long filmId, int count) {
+        lock.readLock().lock();
+        try {
+            Neighbours list = neighbours.get(filmId);
+            return list == null ? List.of() : list.top(count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Считает списки заново по снимку матрицы лайков; фильмы обрабатываются параллельно на пуле fork-join.
+     * Уточнения от лайков, пришедших с начала перестроения, применяются к новым спискам перед подменой.
+     */
+    public void rebuild(Map<Integer, RoaringBitmap> userFilms, Map<Integer, RoaringBitmap> filmUsers)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        int[] filmIds = filmUsers.keySet().stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
+        int maxFilmId = filmIds.length == 0 ? 0 : filmIds[filmIds.length - 1];
+        int[] filmLikes = new int[maxFilmId + 1];
+        filmUsers.forEach((filmId, users) -> filmLikes[filmId] = users.getCardinality());
+        // строки матрицы в массивах по идентификатору пользователя: их обходят по разу на каждый лайкнутый фильм
+        int maxUserId = userFilms.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int[][] userRows = new int[maxUserId + 1][];
+        userFilms.forEach((userId, films) -> {
+            if (films.getCardinality() <= maxUserLikes) {
+                userRows[userId] = films.toArray();
+            }
+        });
+        Neighbours[] lists = new Neighbours[filmIds.length];
+        int chunkSize = 256;
+        ForkJoinPool pool = new ForkJoinPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> IntStream.range(0, (filmIds.length + chunkSize - 1) / chunkSize).parallel()
+                    .forEach(chunk -> {
+                        // счетчики совместных лайков по идентификатору фильма, общие для фильмов одной порции
+                        int[] counts = new int[maxFilmId + 1];
+                        int[] touched = new int[64];
+                        for (int i = chunk * chunkSize; i < Math.min(filmIds.length, (chunk + 1) * chunkSize); i++) {
+                            int filmId = filmIds[i];
+                            RoaringBitmap users = filmUsers.get(filmId);
+                            int touchedCount = 0;
+                            IntIterator userIds = users.getIntIterator();
+                            while (userIds.hasNext()) {
+                                int[] films = userRows[userIds.next()];
+                                if (films == null) {
+                                    continue;
+                                }
+                                for (int other : films) {
+                                    if (other != filmId && counts[other]++ == 0) {
+                                        if (touchedCount == touched.length) {
+                                            touched = Arrays.copyOf(touched, touched.length * 2);
+                                        }
+                                        touched[touchedCount++] = other;
+                                    }
+                                }
+                            }
+                            Neighbours list = new Neighbours();
+                            for (int t = 0; t < touchedCount; t++) {
+                                int other = touched[t];
+                                list.offer(other, cosine(counts[other], filmLikes[filmId], filmLikes[other]), topN);
+                                counts[other] = 0;
+                            }
+                            lists[i] = list;
+                        }
+                    })).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Расчет похожих фильмов завершился ошибкой", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<Long, Neighbours> fresh = new HashMap<>(filmIds.length);
+        for (int i = 0; i < filmIds.length; i++) {
+            fresh.put((long) filmIds[i], lists[i]);
+        }
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            neighbours = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("SIMILAR-FILMS. Списки похожих фильмов построены, фильмов: {}, заняло {} мс",
+                filmIds.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        refresh(filmId, userId);
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        refresh(filmId, userId);
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(lists -> {
+            lists.remove(filmId);
+            lists.values().forEach(list -> list.remove(filmId));
+        });
+    }
+
+    /**
+     * Лайк меняет число общих лайков фильма с остальными фильмами пользователя и число лайков
+     * самого фильма, то есть сходство с каждым фильмом из его списка. Оценки считаются по
+     * матрице лайков без блокировки индекса, под блокировкой только применяются.
+     */
+    private void refresh(long filmId, long userId) {
+        RoaringBitmap userFilms = likeMatrix.getFilms(userId);
+        userFilms.remove(Math.toIntExact(filmId));
+        if (userFilms.getCardinality() > maxUserLikes) {
+            return;
+        }
+        List<Long> affected = new ArrayList<>(getSimilar(filmId, topN));
+        userFilms.forEach((int other) -> affected.add((long) other));
+
+        int filmLikes = likeMatrix.countUsers(filmId);
+        long[] otherIds = new long[affected.size()];
+        double[] scores = new double[affected.size()];
+        for (int i = 0; i < otherIds.length; i++) {
+            otherIds[i] = affected.get(i);
+            scores[i] = cosine(likeMatrix.countCommonUsers(filmId, otherIds[i]), filmLikes,
+                    likeMatrix.countUsers(otherIds[i]));
+        }
+
+        // оценки абсолютные, поэтому при перестроении их можно применить к новым спискам повторно
+        update(lists -> {
+            for (int i = 0; i < otherIds.length; i++) {
+                lists.computeIfAbsent(filmId, key -> new Neighbours()).put(otherIds[i], scores[i], topN);
+                lists.computeIfAbsent(otherIds[i], key -> new Neighbours()).put(filmId, scores[i], topN);
+            }
+        });
+    }
+
+    private void update(Consumer<Map<Long, Neighbours>> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(neighbours, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static double cosine(int common, int firstLikes, int secondLikes) {
+        if (common == 0) {
+            return 0;
+        }
+        return common / Math.sqrt((double) firstLikes * secondLikes);
+    }
+
+    /**
+     * Не больше {@code limit} фильмов, упорядоченных по убыванию сходства, при равенстве - по идентификатору.
+     * Фильм, чье сходство упало, может выпасть из списка без замены до следующего перестроения.
+     */
+    private static final class Neighbours {
+        private long[] filmIds = new long[0];
+        private double[] scores = new double[0];
+
+        List<Long> top(int count) {
+            return Arrays.stream(filmIds, 0, Math.min(count, filmIds.length)).boxed().toList();
+        }
+
+        void put(long filmId, double score, int limit) {
+            remove(filmId);
+            offer(filmId, score, limit);
+        }
+
+        /**
+         * Добавляет фильм, которого еще нет в списке.
+         */
+        void offer(long filmId, double score, int limit) {
+            if (score <= 0 || filmIds.length == limit && scores[limit - 1] >= score) {
+                return;
+            }
+            int position = 0;
+            while (position < filmIds.length && (scores[position] > score
+                    || scores[position] == score && filmIds[position] < filmId)) {
+                position++;
+            }
+            if (position >= limit) {
+                return;
+            }
+            int size = Math.min(filmIds.length + 1, limit);
+            long[] newIds = new long[size];
+            double[] newScores = new double[size];
+            System.arraycopy(filmIds, 0, newIds, 0, position);
+            System.arraycopy(scores, 0, newScores, 0, position);
+            newIds[position] = filmId;
+            newScores[position] = score;
+            System.arraycopy(filmIds, position, newIds, position + 1, size - position - 1);
+            System.arraycopy(scores, position, newScores, position + 1, size - position - 1);
+            filmIds = newIds;
+            scores = newScores;
+        }
+
+        void remove(long filmId) {
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] == filmId) {
+                    long[] newIds = new long[filmIds.length - 1];
+                    double[] newScores = new double[scores.length - 1];
+                    System.arraycopy(filmIds, 0, newIds, 0, i);
+                    System.arraycopy(scores, 0, newScores, 0, i);
+                    System.arraycopy(filmIds, i + 1, newIds, i, filmIds.length - i - 1);
+                    System.arraycopy(scores, i + 1, newScores, i, scores.length - i - 1);
+                    filmIds = newIds;
+                    scores = newScores;
+                    return;
+                }
+            }
+        }
+    }
+}
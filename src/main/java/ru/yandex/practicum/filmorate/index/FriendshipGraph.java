@@ -0,0 +1,394 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя отсортированные массивы идентификаторов его друзей
+ * и тех, кто добавил его в друзья. Дружба односторонняя, как в таблице FRIENDSHIP. Массив при изменении
+ * заменяется новым, поэтому прочитанный под блокировкой массив дальше можно обходить без нее.
+ */
+@Component
+@Slf4j
+public class FriendshipGraph implements RebuildableIndex {
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State(new HashMap<>(), new HashMap<>());
+
+    @Value("${filmorate.friend-suggestions.max-visits}")
+    private int maxVisits;
+
+    @Value("${filmorate.friendship-path.max-depth}")
+    private int maxDepth;
+
+    @Value("${filmorate.friendship-path.max-visits}")
+    private int maxPathVisits;
+
+    /**
+     * @return отсортированные идентификаторы друзей; массив не изменяется и не должен изменяться вызывающим
+     */
+    public long[] getFriends(long userId) {
+        lock.readLock().lock();
+        try {
+            return state.friends().getOrDefault(userId, NO_FRIENDS);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return отсортированные идентификаторы тех, у кого пользователь в друзьях; массив не изменяется
+     * и не должен изменяться вызывающим
+     */
+    public long[] getFollowers(long userId) {
+        lock.readLock().lock();
+        try {
+            return state.followers().getOrDefault(userId, NO_FRIENDS);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Предлагает друзей друзей, упорядоченных по числу общих друзей, при равенстве - по идентификатору.
+     * Друзья обходятся от самых малообщительных, пока следующий не выведет число просмотренных связей
+     * за {@code max-visits}: общий друг с небольшим кругом общения говорит о знакомстве больше, чем
+     * популярный пользователь, и обход при этом не зависит от размера самых больших списков.
+     * Список первого друга берется всегда, но не больше чем на {@code max-visits} связей.
+     *
+     * @return до {@code count} идентификаторов пользователей
+     */
+    public List<Long> suggest(long userId, int count) {
+        long[] own;
+        List<long[]> lists;
+        lock.readLock().lock();
+        try {
+            own = state.friends().getOrDefault(userId, NO_FRIENDS);
+            lists = new ArrayList<>(own.length);
+            for (long friendId : own) {
+                long[] friendsOfFriend = state.friends().get(friendId);
+                if (friendsOfFriend != null) {
+                    lists.add(friendsOfFriend);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int visits = lists.isEmpty() ? 0 : Math.min(lists.get(0).length, maxVisits);
+        for (int i = 1; i < lists.size() && visits + lists.get(i).length <= maxVisits; i++) {
+            visits += lists.get(i).length;
+        }
+        // все просмотренные связи в одном массиве: после сортировки число общих друзей - длина серии
+        long[] candidates = new long[visits];
+        for (int i = 0, filled = 0; filled < visits; i++) {
+            int length = Math.min(lists.get(i).length, visits - filled);
+            System.arraycopy(lists.get(i), 0, candidates, filled, length);
+            filled += length;
+        }
+        Arrays.sort(candidates);
+
+        // в куче остаются лучшие count кандидатов, наверху худший из них
+        Comparator<Suggestion> byMutualFriends = Comparator.comparingInt(Suggestion::mutualFriends).reversed()
+                .thenComparingLong(Suggestion::userId);
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(count + 1, byMutualFriends.reversed());
+        for (int start = 0, end; start < candidates.length; start = end) {
+            long candidate = candidates[start];
+            end = start + 1;
+            while (end < candidates.length && candidates[end] == candidate) {
+                end++;
+            }
+            if (candidate == userId || Arrays.binarySearch(own, candidate) >= 0) {
+                continue;
+            }
+            best.add(new Suggestion(candidate, end - start));
+            if (best.size() > count) {
+                best.poll();
+            }
+        }
+        return best.stream()
+                .sorted(byMutualFriends)
+                .map(Suggestion::userId)
+                .toList();
+    }
+
+    /**
+     * Кратчайшая цепочка дружбы от {@code userId} до {@code otherId} по направлению связей.
+     * Поиск в ширину ведется с обоих концов сразу: по друзьям от начала и по подписчикам от конца,
+     * каждый раз расширяется меньший фронт. Так просматривается примерно корень из числа вершин,
+     * которые обошел бы поиск с одного конца. Поиск прекращается, если цепочка длиннее {@code max-depth}
+     * или просмотрено больше {@code max-visits} связей: без этого пара пользователей-"хабов" обходила бы
+     * почти весь граф.
+     *
+     * @return идентификаторы пользователей цепочки от начала до конца; пустой список, если цепочка не найдена
+     */
+    public List<Long> findPath(long userId, long otherId) {
+        if (userId == otherId) {
+            return List.of(userId);
+        }
+        Map<Long, Long> forwardParents = new HashMap<>();
+        Map<Long, Long> backwardParents = new HashMap<>();
+        forwardParents.put(userId, userId);
+        backwardParents.put(otherId, otherId);
+        List<Long> forwardFrontier = List.of(userId);
+        List<Long> backwardFrontier = List.of(otherId);
+        int depth = 0;
+        int visits = 0;
+        lock.readLock().lock();
+        try {
+            while (depth < maxDepth && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+                boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+                Map<Long, long[]> edges = forward ? state.friends() : state.followers();
+                Map<Long, Long> parents = forward ? forwardParents : backwardParents;
+                Map<Long, Long> otherParents = forward ? backwardParents : forwardParents;
+                List<Long> next = new ArrayList<>();
+                // лучшая встреча на уровне: у вершин с другой стороны может быть разная глубина
+                long meeting = -1;
+                int meetingLength = Integer.MAX_VALUE;
+                for (long node : forward ? forwardFrontier : backwardFrontier) {
+                    long[] neighbours = edges.getOrDefault(node, NO_FRIENDS);
+                    visits += neighbours.length;
+                    if (visits > maxPathVisits) {
+                        log.debug("FRIENDSHIP-PATH. Исчерпан лимит просмотров между {} и {}", userId, otherId);
+                        return List.of();
+                    }
+                    for (long neighbour : neighbours) {
+                        if (parents.putIfAbsent(neighbour, node) != null) {
+                            continue;
+                        }
+                        next.add(neighbour);
+                        if (otherParents.containsKey(neighbour)) {
+                            int length = chainLength(otherParents, neighbour);
+                            if (length < meetingLength) {
+                                meeting = neighbour;
+                                meetingLength = length;
+                            }
+                        }
+                    }
+                }
+                depth++;
+                if (meeting >= 0) {
+                    List<Long> path = joinChains(forwardParents, backwardParents, meeting);
+                    return path.size() - 1 <= maxDepth ? path : List.of();
+                }
+                if (forward) {
+                    forwardFrontier = next;
+                } else {
+                    backwardFrontier = next;
+                }
+            }
+            return List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Строит граф заново и подменяет им текущий. Связи, добавленные и удаленные, пока читается источник,
+     * применяются к новому графу перед подменой.
+     *
+     * @param friendships источник, передающий все связи получателю по одной,
+     *                    например {@code userRepository::forEachFriendship}
+     */
+    public void rebuild(Consumer<BiConsumer<Long, Long>> friendships) {
+        AdjacencyBuilder freshFriends = new AdjacencyBuilder();
+        AdjacencyBuilder freshFollowers = new AdjacencyBuilder();
+        long count = RebuildableIndex.rebuild(List.of(this), () -> {
+            long[] read = {0};
+            friendships.accept((userId, friendId) -> {
+                freshFriends.add(userId, friendId);
+                freshFollowers.add(friendId, userId);
+                read[0]++;
+            });
+            return read[0];
+        });
+        State fresh = new State(freshFriends.build(), freshFollowers.build());
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("FRIENDSHIP-GRAPH. Граф дружбы построен, пользователей: {}, связей: {}",
+                fresh.friends().size(), count);
+    }
+
+    public void addFriend(long userId, long friendId) {
+        update(current -> current.addFriend(userId, friendId));
+    }
+
+    public void deleteFriend(long userId, long friendId) {
+        update(current -> current.deleteFriend(userId, friendId));
+    }
+
+    /**
+     * Удаляет пользователя вместе со всеми связями, как это делает каскадное удаление в базе.
+     */
+    public void deleteUser(long userId) {
+        update(current -> current.deleteUser(userId));
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return число связей от {@code node} до конца своей половины цепочки
+     */
+    private static int chainLength(Map<Long, Long> parents, long node) {
+        int length = 0;
+        for (long current = node; parents.get(current) != current; current = parents.get(current)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static List<Long> joinChains(Map<Long, Long> forwardParents, Map<Long, Long> backwardParents,
+                                         long meeting) {
+        List<Long> path = new ArrayList<>();
+        for (long current = meeting; ; current = forwardParents.get(current)) {
+            path.add(current);
+            if (forwardParents.get(current) == current) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        for (long current = meeting; backwardParents.get(current) != current; ) {
+            current = backwardParents.get(current);
+            path.add(current);
+        }
+        return path;
+    }
+
+    private static void addEdge(Map<Long, long[]> edges, long from, long to) {
+        long[] list = edges.getOrDefault(from, NO_FRIENDS);
+        int position = Arrays.binarySearch(list, to);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        long[] updated = new long[list.length + 1];
+        System.arraycopy(list, 0, updated, 0, position);
+        updated[position] = to;
+        System.arraycopy(list, position, updated, position + 1, list.length - position);
+        edges.put(from, updated);
+    }
+
+    private static void removeEdge(Map<Long, long[]> edges, long from, long to) {
+        long[] list = edges.get(from);
+        int position = list == null ? -1 : Arrays.binarySearch(list, to);
+        if (position < 0) {
+            return;
+        }
+        if (list.length == 1) {
+            edges.remove(from);
+            return;
+        }
+        long[] updated = new long[list.length - 1];
+        System.arraycopy(list, 0, updated, 0, position);
+        System.arraycopy(list, position + 1, updated, position, list.length - position - 1);
+        edges.put(from, updated);
+    }
+
+    /**
+     * Собирает списки смежности из потока связей: массивы растут удвоением, в конце обрезаются и сортируются.
+     */
+    private static final class AdjacencyBuilder {
+        private final Map<Long, long[]> lists = new HashMap<>();
+        private final Map<Long, Integer> sizes = new HashMap<>();
+
+        void add(long from, long to) {
+            int size = sizes.merge(from, 1, Integer::sum);
+            long[] list = lists.get(from);
+            if (list == null || list.length < size) {
+                list = Arrays.copyOf(list == null ? NO_FRIENDS : list, Math.max(4, size * 2));
+                lists.put(from, list);
+            }
+            list[size - 1] = to;
+        }
+
+        Map<Long, long[]> build() {
+            lists.replaceAll((from, list) -> {
+                long[] trimmed = Arrays.copyOf(list, sizes.get(from));
+                Arrays.sort(trimmed);
+                return trimmed;
+            });
+            return lists;
+        }
+    }
+
+    /**
+     * Все методы изменения идемпотентны: при перестроении они повторяются на новом графе.
+     *
+     * @param followers обратные связи: пользователь -> те, у кого он в друзьях
+     */
+    private record State(Map<Long, long[]> friends, Map<Long, long[]> followers) {
+        void addFriend(long userId, long friendId) {
+            addEdge(friends, userId, friendId);
+            addEdge(followers, friendId, userId);
+        }
+
+        void deleteFriend(long userId, long friendId) {
+            removeEdge(friends, userId, friendId);
+            removeEdge(followers, friendId, userId);
+        }
+
+        void deleteUser(long userId) {
+            for (long friendId : friends.getOrDefault(userId, NO_FRIENDS)) {
+                removeEdge(followers, friendId, userId);
+            }
+            for (long followerId : followers.getOrDefault(userId, NO_FRIENDS)) {
+                removeEdge(friends, followerId, userId);
+            }
+            friends.remove(userId);
+            followers.remove(userId);
+        }
+    }
+
+    private record Suggestion(long userId, int mutualFriends) {
+    }
+}
@@ -0,0 +1,330 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Матрица лайков "пользователь x фильм" в сжатых битовых множествах: по строке на пользователя
+ * и по столбцу на фильм. Обновляется раньше остальных получателей событий, чтобы те видели
+ * уже примененное изменение.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class LikeMatrix implements CatalogListener, RebuildableIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state = new State();
+
+    public RoaringBitmap getFilms(long userId) {
+        lock.readLock().lock();
+        try {
+            return copyOf(state.userFilms.get(Math.toIntExact(userId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RoaringBitmap getUsers(long filmId) {
+        lock.readLock().lock();
+        try {
+            return copyOf(state.filmUsers.get(Math.toIntExact(filmId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countUsers(long filmId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap users = state.filmUsers.get(Math.toIntExact(filmId));
+            return users == null ? 0 : users.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return число пользователей, которым понравились оба фильма
+     */
+    public int countCommonUsers(long firstFilmId, long secondFilmId) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap first = state.filmUsers.get(Math.toIntExact(firstFilmId));
+            RoaringBitmap second = state.filmUsers.get(Math.toIntExact(secondFilmId));
+            return first == null || second == null ? 0 : RoaringBitmap.andCardinality(first, second);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пересекает строки пользователей от самой короткой: размер промежуточного результата не превышает
+     * ее длины, а пустое пересечение обнаруживается без обхода остальных строк.
+     *
+     * @return фильмы, которые понравились всем перечисленным пользователям
+     */
+    public RoaringBitmap getCommonFilms(Collection<Long> userIds) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> rows = new ArrayList<>(userIds.size());
+            for (long userId : userIds) {
+                RoaringBitmap films = state.userFilms.get(Math.toIntExact(userId));
+                if (films == null) {
+                    return new RoaringBitmap();
+                }
+                rows.add(films);
+            }
+            if (rows.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            rows.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+            RoaringBitmap common = rows.get(0).clone();
+            for (int i = 1; i < rows.size() && !common.isEmpty(); i++) {
+                common.and(rows.get(i));
+            }
+            return common;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return копия всех столбцов матрицы: фильм -> пользователи, которым он понравился
+     */
+    public Map<Integer, RoaringBitmap> getFilmUsers() {
+        lock.readLock().lock();
+        try {
+            Map<Integer, RoaringBitmap> copy = new HashMap<>(state.filmUsers.size());
+            state.filmUsers.forEach((filmId, users) -> copy.put(filmId, users.clone()));
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return копия всех строк матрицы: пользователь -> лайкнутые фильмы
+     */
+    public Map<Integer, RoaringBitmap> getUserFilms() {
+        lock.readLock().lock();
+        try {
+            Map<Integer, RoaringBitmap> copy = new HashMap<>(state.userFilms.size());
+            state.userFilms.forEach((userId, films) -> copy.put(userId, films.clone()));
+            return copy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Находит до {@code limit} пользователей, больше всего похожих на {@code userId} по лайкам.
+     * Кандидаты набираются по фильмам пользователя от наименее популярных, пока следующий фильм
+     * не выведет их число за {@code maxCandidates}: общий редкий фильм говорит о сходстве больше,
+     * чем общий хит.
+     *
+     * @return соседи по убыванию сходства
+     */
+    public List<Neighbour> getNeighbours(long userId, int limit, int maxCandidates, SimilarityMeasure measure) {
+        int user = Math.toIntExact(userId);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap own = state.userFilms.get(user);
+            if (own == null || own.isEmpty()) {
+                return List.of();
+            }
+            List<RoaringBitmap> columns = new ArrayList<>(own.getCardinality());
+            own.forEach((int filmId) -> columns.add(state.filmUsers.get(filmId)));
+            columns.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+
+            RoaringBitmap candidates = columns.get(0).clone();
+            for (int i = 1; i < columns.size(); i++) {
+                if (candidates.getCardinality() + columns.get(i).getCardinality() > maxCandidates
+                        && RoaringBitmap.orCardinality(candidates, columns.get(i)) > maxCandidates) {
+                    break;
+                }
+                candidates.or(columns.get(i));
+            }
+            return rank(user, own, candidates, limit, measure);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Точно оценивает сходство с {@code userId} уже отобранных кандидатов, например найденных
+     * приближенным поиском, и оставляет до {@code limit} лучших.
+     *
+     * @return соседи по убыванию сходства
+     */
+    public List<Neighbour> rankNeighbours(long userId, RoaringBitmap candidates, int limit, SimilarityMeasure measure) {
+        int user = Math.toIntExact(userId);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap own = state.userFilms.get(user);
+            if (own == null || own.isEmpty()) {
+                return List.of();
+            }
+            return rank(user, own, candidates, limit, measure);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Строит матрицу заново и подменяет ею текущую. Лайки, поставленные и снятые, пока читается источник,
+     * применяются к новой матрице перед подменой.
+     *
+     * @param likes источник, передающий все лайки получателю по одному, например {@code likeRepository::forEachLike}
+     */
+    public void rebuild(Consumer<Consumer<Like>> likes) {
+        State fresh = new State();
+        long count = RebuildableIndex.rebuild(List.of(this), () -> {
+            long[] read = {0};
+            likes.accept(like -> {
+                fresh.addLike(Math.toIntExact(like.getFilmId()), Math.toIntExact(like.getUserId()));
+                read[0]++;
+            });
+            return read[0];
+        });
+        fresh.userFilms.values().forEach(RoaringBitmap::runOptimize);
+        fresh.filmUsers.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("LIKE-MATRIX. Матрица лайков построена, пользователей: {}, фильмов: {}, лайков: {}",
+                fresh.userFilms.size(), fresh.filmUsers.size(), count);
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        update(current -> current.addLike(Math.toIntExact(filmId), Math.toIntExact(userId)));
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        update(current -> current.removeLike(Math.toIntExact(filmId), Math.toIntExact(userId)));
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        update(current -> current.removeFilm(Math.toIntExact(filmId)));
+    }
+
+    private void update(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            pending.apply(state, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Neighbour> rank(int user, RoaringBitmap own, RoaringBitmap candidates, int limit,
+                                 SimilarityMeasure measure) {
+        // в куче остаются лучшие limit соседей, наверху худший из них
+        Comparator<Neighbour> bySimilarity = Comparator.comparingDouble(Neighbour::similarity).reversed()
+                .thenComparingLong(Neighbour::userId);
+        PriorityQueue<Neighbour> best = new PriorityQueue<>(limit + 1, bySimilarity.reversed());
+        candidates.forEach((int candidate) -> {
+            RoaringBitmap films = state.userFilms.get(candidate);
+            if (candidate == user || films == null) {
+                return;
+            }
+            int common = RoaringBitmap.andCardinality(own, films);
+            double similarity = measure.score(common, own.getCardinality(), films.getCardinality());
+            best.add(new Neighbour(candidate, similarity, films));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        return best.stream()
+                .sorted(bySimilarity)
+                .map(neighbour -> new Neighbour(neighbour.userId(), neighbour.similarity(),
+                        neighbour.films().clone()))
+                .toList();
+    }
+
+    private static void removeFrom(Map<Integer, RoaringBitmap> rows, int key, int id) {
+        RoaringBitmap row = rows.get(key);
+        if (row != null) {
+            row.remove(id);
+            if (row.isEmpty()) {
+                rows.remove(key);
+            }
+        }
+    }
+
+    private static RoaringBitmap copyOf(RoaringBitmap bitmap) {
+        return bitmap == null ? new RoaringBitmap() : bitmap.clone();
+    }
+
+    /**
+     * Похожий пользователь и копия множества его лайков.
+     */
+    public record Neighbour(long userId, double similarity, RoaringBitmap films) {
+    }
+
+    private static final class State {
+        private final Map<Integer, RoaringBitmap> userFilms = new HashMap<>();
+        private final Map<Integer, RoaringBitmap> filmUsers = new HashMap<>();
+
+        void addLike(int filmId, int userId) {
+            userFilms.computeIfAbsent(userId, key -> new RoaringBitmap()).add(filmId);
+            filmUsers.computeIfAbsent(filmId, key -> new RoaringBitmap()).add(userId);
+        }
+
+        void removeLike(int filmId, int userId) {
+            removeFrom(userFilms, userId, filmId);
+            removeFrom(filmUsers, filmId, userId);
+        }
+
+        void removeFilm(int filmId) {
+            // лайки удаляются каскадно вместе с фильмом
+            RoaringBitmap users = filmUsers.remove(filmId);
+            if (users != null) {
+                users.forEach((int userId) -> removeFrom(userFilms, userId, filmId));
+            }
+        }
+    }
+}
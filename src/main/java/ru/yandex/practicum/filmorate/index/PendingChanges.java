@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Журнал изменений, пришедших, пока индекс перестраивается по снимку базы. Журнал открывается до чтения
+ * снимка, а перед подменой состояния записанное применяется к новому: иначе изменение, сделанное в базе
+ * после чтения снимка, досталось бы только старому состоянию и пропало бы до следующего перестроения.
+ * Изменения, успевшие попасть и в снимок, применяются повторно, поэтому записываются идемпотентными:
+ * счетчики - итоговым значением, а не приращением. Все методы вызываются под блокировкой записи индекса.
+ *
+ * @param <S> состояние индекса
+ */
+final class PendingChanges<S> {
+    private List<Consumer<S>> changes;
+
+    void open() {
+        changes = new ArrayList<>();
+    }
+
+    void discard() {
+        changes = null;
+    }
+
+    /**
+     * Применяет изменение к текущему состоянию и, если идет перестроение, запоминает его для нового.
+     */
+    void apply(S current, Consumer<S> change) {
+        change.accept(current);
+        record(change);
+    }
+
+    /**
+     * Запоминает изменение для нового состояния; к текущему оно уже применено вызывающим.
+     */
+    void record(Consumer<S> change) {
+        if (changes != null) {
+            changes.add(change);
+        }
+    }
+
+    /**
+     * Применяет записанное к построенному состоянию и закрывает журнал.
+     */
+    void replay(S fresh) {
+        if (changes != null) {
+            changes.forEach(change -> change.accept(fresh));
+            changes = null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.List;
+
+/**
+ * Индекс, который перестраивается по снимку базы, продолжая получать изменения. Перестроение начинается
+ * до чтения снимка: изменения, пришедшие после {@link #beginRebuild()}, применяются к новому состоянию
+ * перед подменой.
+ */
+public interface RebuildableIndex {
+    void beginRebuild();
+
+    /**
+     * Закрывает журнал изменений, если новое состояние так и не было построено.
+     */
+    void cancelRebuild();
+
+    /**
+     * Начинает перестроение индексов, выполняет {@code rebuild}, который читает снимок и строит по нему
+     * индексы, и отменяет перестроение, если он завершился ошибкой.
+     */
+    static <T, E extends Exception> T rebuild(List<? extends RebuildableIndex> indexes, Rebuild<T, E> rebuild)
+            throws E {
+        indexes.forEach(RebuildableIndex::beginRebuild);
+        boolean built = false;
+        try {
+            T result = rebuild.run();
+            built = true;
+            return result;
+        } finally {
+            if (!built) {
+                indexes.forEach(RebuildableIndex::cancelRebuild);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Rebuild<T, E extends Exception> {
+        T run() throws E;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.index;
+
+/**
+ * Мера сходства двух множеств лайков.
+ */
+public enum SimilarityMeasure {
+    /**
+     * Число общих фильмов.
+     */
+    OVERLAP {
+        @Override
+        public double score(int common, int firstSize, int secondSize) {
+            return common;
+        }
+    },
+    /**
+     * Доля общих фильмов в объединении; не дает пользователям с огромным числом лайков
+     * оказываться соседями всех подряд.
+     */
+    JACCARD {
+        @Override
+        public double score(int common, int firstSize, int secondSize) {
+            int union = firstSize + secondSize - common;
+            return union == 0 ? 0 : (double) common / union;
+        }
+    };
+
+    public abstract double score(int common, int firstSize, int secondSize);
+}
@@ -0,0 +1,348 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.repository.feed.FeedListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ленты активности друзей. Для каждого читавшего ленту пользователя хранится кольцевой буфер последних
+ * {@code capacity} событий его друзей: записанное событие сразу раскладывается по буферам подписчиков
+ * автора, и чтение страницы - проход по одному буферу. События авторов, у которых больше
+ * {@code follower-threshold} подписчиков, не раскладываются: одна их запись стоила бы тысяч вставок.
+ * Ленты таких авторов читаются из базы при запросе и сливаются с буфером.
+ * Буфер заполняется из базы при первом чтении и сбрасывается, когда пользователь добавляет друга;
+ * события тех, кто больше не в друзьях, отбрасываются при чтении. Страницы старше буфера читаются из базы
+ * одним запросом, по {@code limit} событий каждого друга, и сливаются. Сверх {@code max-users} вытесняется
+ * буфер, дольше всех не читавшийся.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineIndex implements FeedListener {
+    private final FriendshipGraph friendshipGraph;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // буферы в порядке обращения: чтение переставляет буфер в конец, поэтому берется под блокировкой записи
+    private final Map<Long, Timeline> timelines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+            return size() > maxUsers;
+        }
+    };
+    // авторы, чьи события хотя бы раз не раскладывались по буферам: их ленты всегда читаются из базы
+    private final Set<Long> pulledAuthors = new HashSet<>();
+
+    @Value("${filmorate.timeline.capacity}")
+    private int capacity;
+
+    @Value("${filmorate.timeline.follower-threshold}")
+    private int followerThreshold;
+
+    @Value("${filmorate.timeline.max-users}")
+    private int maxUsers;
+
+    /**
+     * @param authorFeed источник событий авторов из базы, например {@code userRepository::getFeedsBefore}
+     * @return до {@code limit} событий друзей с идентификаторами меньше {@code beforeId}, от новых к старым
+     */
+    public List<Event> getTimeline(long userId, long beforeId, int limit, AuthorFeed authorFeed) {
+        long[] friends = friendshipGraph.getFriends(userId);
+        long[] buffered;
+        long[] pulled;
+        lock.readLock().lock();
+        try {
+            buffered = Arrays.stream(friends).filter(friendId -> !isPulled(friendId)).toArray();
+            pulled = Arrays.stream(friends).filter(this::isPulled).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Page page = readBuffer(userId, beforeId, limit, buffered);
+        if (page == null) {
+            hydrate(userId, buffered, authorFeed);
+            page = readBuffer(userId, beforeId, limit, buffered);
+        }
+        if (page == null || !page.complete()) {
+            log.debug("TIMELINE. Страница ленты пользователя {} старше буфера, читаем из базы", userId);
+            return fetch(friends, beforeId, limit, authorFeed);
+        }
+        List<Collection<Event>> sources = new ArrayList<>(feeds(pulled, beforeId, limit, authorFeed));
+        sources.add(page.events());
+        return mergeNewest(sources, limit);
+    }
+
+    /**
+     * Сбрасывает буфер пользователя, например после добавления друга: в буфере нет его прошлых событий.
+     */
+    public void invalidate(long userId) {
+        lock.writeLock().lock();
+        try {
+            timelines.remove(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Учитывает, что {@code userId} убрал {@code friendId} из друзей; граф дружбы уже обновлен. Автор, чьи
+     * события читались из базы, снова раскладывается по буферам, когда подписчиков у него остается
+     * не больше половины порога: запас не дает автору на границе переключаться при каждой подписке.
+     * Буферы его подписчиков сбрасываются, потому что его прошлых событий в них нет.
+     */
+    public void onFriendDeleted(long userId, long friendId) {
+        long[] followers = friendshipGraph.getFollowers(friendId);
+        if (followers.length > followerThreshold / 2) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pulledAuthors.remove(friendId)) {
+                for (long followerId : followers) {
+                    timelines.remove(followerId);
+                }
+                log.info("TIMELINE. У пользователя {} подписчиков: {}, его события снова раскладываются по лентам",
+                        friendId, followers.length);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Забывает удаленного пользователя и как читателя, и как автора.
+     */
+    public void deleteUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            timelines.remove(userId);
+            pulledAuthors.remove(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEventsSaved(List<Event> events) {
+        lock.writeLock().lock();
+        try {
+            for (Event event : events) {
+                long authorId = event.getUserId();
+                long[] followers = friendshipGraph.getFollowers(authorId);
+                if (followers.length > followerThreshold || pulledAuthors.contains(authorId)) {
+                    if (pulledAuthors.add(authorId)) {
+                        log.info("TIMELINE. У пользователя {} подписчиков: {}, его события читаются из базы",
+                                authorId, followers.length);
+                    }
+                    continue;
+                }
+                for (long followerId : followers) {
+                    Timeline timeline = timelines.get(followerId);
+                    if (timeline != null) {
+                        timeline.add(event);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Вызывается под блокировкой индекса.
+     */
+    private boolean isPulled(long authorId) {
+        return pulledAuthors.contains(authorId) || friendshipGraph.getFollowers(authorId).length > followerThreshold;
+    }
+
+    private Page readBuffer(long userId, long beforeId, int limit, long[] authors) {
+        // поиск меняет порядок обращения, поэтому идет под блокировкой записи; проход по буферу - под чтением
+        Timeline timeline;
+        lock.writeLock().lock();
+        try {
+            timeline = timelines.get(userId);
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            return timeline == null ? null : timeline.newestBefore(beforeId, limit, authors);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Регистрирует пустой буфер и заполняет его из базы. События, записанные после регистрации, попадут
+     * в буфер при раскладке, записанные раньше уже видны в базе. Событие может прийти дважды: из базы
+     * и раскладкой до или после загрузки; повтор отбрасывают и загрузка, и добавление.
+     */
+    private void hydrate(long userId, long[] authors, AuthorFeed authorFeed) {
+        Timeline timeline = new Timeline(capacity);
+        lock.writeLock().lock();
+        try {
+            if (timelines.putIfAbsent(userId, timeline) != null) {
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Event> loaded = fetch(authors, Long.MAX_VALUE, capacity, authorFeed);
+        // буфер загружен полностью, если у друзей меньше событий, чем в него помещается
+        long loadedFloor = loaded.size() < capacity ? 0 : loaded.get(loaded.size() - 1).getEventId();
+        lock.writeLock().lock();
+        try {
+            timeline.load(loaded, loadedFloor);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return до {@code limit} событий авторов от новых к старым
+     */
+    private static List<Event> fetch(long[] authors, long beforeId, int limit, AuthorFeed authorFeed) {
+        return mergeNewest(feeds(authors, beforeId, limit, authorFeed), limit);
+    }
+
+    /**
+     * @return ленты авторов, каждая до {@code limit} событий от новых к старым, одним обращением к источнику
+     */
+    private static Collection<? extends Collection<Event>> feeds(long[] authors, long beforeId, int limit,
+                                                                 AuthorFeed authorFeed) {
+        if (authors.length == 0) {
+            return List.of();
+        }
+        return authorFeed.newestBefore(Arrays.stream(authors).boxed().toList(), beforeId, limit).values();
+    }
+
+    /**
+     * Сливает списки событий, упорядоченные от новых к старым, через кучу из их текущих голов.
+     */
+    private static List<Event> mergeNewest(Collection<? extends Collection<Event>> sources, int limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                Comparator.comparingLong((Head head) -> head.event().getEventId()).reversed());
+        for (Collection<Event> source : sources) {
+            Iterator<Event> events = source.iterator();
+            if (events.hasNext()) {
+                heads.add(new Head(events.next(), events));
+            }
+        }
+        List<Event> result = new ArrayList<>(limit);
+        while (result.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            result.add(head.event());
+            if (head.rest().hasNext()) {
+                heads.add(new Head(head.rest().next(), head.rest()));
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface AuthorFeed {
+        /**
+         * @return для каждого автора, у которого есть такие события, до {@code limit} его событий
+         * с идентификаторами меньше {@code beforeId}, от новых к старым
+         */
+        Map<Long, ? extends Collection<Event>> newestBefore(Collection<Long> authorIds, long beforeId, int limit);
+    }
+
+    /**
+     * Кольцевой буфер событий по возрастанию идентификаторов. Все события друзей с идентификатором
+     * не меньше {@link #floor()} в нем есть; до заполнения из базы граница не определена.
+     */
+    private static final class Timeline {
+        private final Event[] ring;
+        private int head;
+        private int size;
+        private long loadedFloor = Long.MAX_VALUE;
+        private long evictedFloor;
+
+        Timeline(int capacity) {
+            ring = new Event[capacity];
+        }
+
+        /**
+         * События раскладываются в порядке записи, поэтому не новее последнего в буфере - повтор уже
+         * загруженного из базы.
+         */
+        void add(Event event) {
+            if (size > 0 && event.getEventId() <= ring[(head - 1 + ring.length) % ring.length].getEventId()) {
+                return;
+            }
+            if (size == ring.length) {
+                evictedFloor = ring[head].getEventId() + 1;
+            } else {
+                size++;
+            }
+            ring[head] = event;
+            head = (head + 1) % ring.length;
+        }
+
+        /**
+         * Добавляет к разложенным за время загрузки событиям загруженные из базы.
+         *
+         * @param loaded события от новых к старым
+         */
+        void load(List<Event> loaded, long floor) {
+            List<Event> all = new ArrayList<>(loaded.size() + size);
+            all.addAll(loaded);
+            for (int i = 0; i < size; i++) {
+                all.add(ring[(head - size + i + ring.length) % ring.length]);
+            }
+            all.sort(Comparator.comparingLong(Event::getEventId));
+            head = 0;
+            size = 0;
+            all.forEach(this::add);
+            loadedFloor = floor;
+        }
+
+        long floor() {
+            return Math.max(loadedFloor, evictedFloor);
+        }
+
+        /**
+         * @param authors отсортированные авторы, чьи события нужны
+         */
+        Page newestBefore(long beforeId, int limit, long[] authors) {
+            long floor = floor();
+            List<Event> events = new ArrayList<>(limit);
+            for (int i = 1; i <= size; i++) {
+                Event event = ring[(head - i + ring.length) % ring.length];
+                if (event.getEventId() >= beforeId || Arrays.binarySearch(authors, event.getUserId()) < 0) {
+                    continue;
+                }
+                if (event.getEventId() < floor) {
+                    return new Page(events, false);
+                }
+                events.add(event);
+                if (events.size() == limit) {
+                    return new Page(events, true);
+                }
+            }
+            return new Page(events, floor == 0);
+        }
+    }
+
+    private record Page(List<Event> events, boolean complete) {
+    }
+
+    private record Head(Event event, Iterator<Event> rest) {
+    }
+}
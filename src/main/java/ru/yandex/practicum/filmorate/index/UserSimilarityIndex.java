@@ -0,0 +1,321 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Приближенный поиск пользователей с похожими лайками: MinHash-сигнатуры множеств лайков,
+ * разложенные по корзинам LSH. Сигнатура делится на полосы по {@code rows} значений; пользователи
+ * с совпавшей полосой попадают в одну корзину. Пара с коэффициентом Жаккара {@code J} совпадает
+ * хотя бы в одной полосе с вероятностью {@code 1 - (1 - J^rows)^bands}, так что кандидатами
+ * становятся в основном действительно похожие пользователи, и сравнивать со всеми не нужно.
+ * Кандидаты затем точно ранжируются по матрице лайков, поэтому сигнатуры, устаревшие после
+ * удаления фильма, влияют только на полноту до следующего перестроения.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserSimilarityIndex implements CatalogListener, RebuildableIndex {
+    private final LikeMatrix likeMatrix;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PendingChanges<State> pending = new PendingChanges<>();
+    private State state;
+    private long[] multipliers;
+    private long[] increments;
+
+    @Value("${filmorate.similar-users.bands}")
+    private int bands;
+
+    @Value("${filmorate.similar-users.rows}")
+    private int rows;
+
+    @Value("${filmorate.similar-users.max-candidates}")
+    private int maxCandidates;
+
+    @PostConstruct
+    public void init() {
+        // одинаковые хэш-функции при каждом запуске, чтобы сигнатуры можно было сравнивать между перестроениями
+        Random random = new Random(42);
+        multipliers = new long[bands * rows];
+        increments = new long[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+        state = new State(new HashMap<>(), emptyBuckets());
+    }
+
+    /**
+     * @return до {@code count} пользователей по убыванию коэффициента Жаккара
+     */
+    public List<Long> getSimilar(long userId, int count) {
+        RoaringBitmap candidates = new RoaringBitmap();
+        lock.readLock().lock();
+        try {
+            int[] signature = state.signatures.get(Math.toIntExact(userId));
+            if (signature == null) {
+                return List.of();
+            }
+            // меньшие корзины первыми: совпадение в редкой полосе говорит о сходстве больше
+            List<int[]> members = new ArrayList<>(bands);
+            for (int band = 0; band < bands; band++) {
+                int[] bucket = state.buckets[band].get(bandKey(signature, band));
+                if (bucket != null && bucket.length > 1) {
+                    members.add(bucket);
+                }
+            }
+            members.sort(Comparator.comparingInt(bucket -> bucket.length));
+            for (int[] bucket : members) {
+                if (candidates.getCardinality() + bucket.length > maxCandidates && !candidates.isEmpty()) {
+                    break;
+                }
+                candidates.addN(bucket, 0, bucket.length);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return likeMatrix.rankNeighbours(userId, candidates, count, SimilarityMeasure.JACCARD).stream()
+                .filter(neighbour -> neighbour.similarity() > 0)
+                .map(LikeMatrix.Neighbour::userId)
+                .toList();
+    }
+
+    @Override
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.open();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cancelRebuild() {
+        lock.writeLock().lock();
+        try {
+            pending.discard();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Считает сигнатуры и корзины заново по снимку строк матрицы лайков. Сигнатуры, измененные лайками
+     * с начала перестроения, переносятся в новое состояние перед подменой.
+     */
+    public void rebuild(Map<Integer, RoaringBitmap> userFilms) {
+        long start = System.nanoTime();
+        int[] userIds = userFilms.entrySet().stream()
+                .filter(entry -> !entry.getValue().isEmpty())
+                .mapToInt(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+        int[][] userSignatures = new int[userIds.length][];
+        Map<Integer, int[]> freshSignatures = new HashMap<>(userIds.length * 2);
+        for (int u = 0; u < userIds.length; u++) {
+            userSignatures[u] = signature(userFilms.get(userIds[u]));
+            freshSignatures.put(userIds[u], userSignatures[u]);
+        }
+
+        // корзины полосы собираются сортировкой ключей, а не вставкой каждого пользователя в отображение:
+        // пользователи обходятся по возрастанию, поэтому массивы корзин получаются отсортированными
+        Map<Long, int[]>[] freshBuckets = emptyBuckets();
+        long[] keys = new long[userIds.length];
+        int[] bucketOf = new int[userIds.length];
+        for (int band = 0; band < bands; band++) {
+            for (int u = 0; u < userIds.length; u++) {
+                keys[u] = bandKey(userSignatures[u], band);
+            }
+            long[] distinctKeys = Arrays.stream(keys).sorted().distinct().toArray();
+            int[] offsets = new int[distinctKeys.length + 1];
+            for (int u = 0; u < userIds.length; u++) {
+                bucketOf[u] = Arrays.binarySearch(distinctKeys, keys[u]);
+                offsets[bucketOf[u] + 1]++;
+            }
+            for (int b = 0; b < distinctKeys.length; b++) {
+                offsets[b + 1] += offsets[b];
+            }
+            int[] members = new int[userIds.length];
+            int[] filled = Arrays.copyOf(offsets, distinctKeys.length);
+            for (int u = 0; u < userIds.length; u++) {
+                members[filled[bucketOf[u]]++] = userIds[u];
+            }
+            Map<Long, int[]> bandBuckets = new HashMap<>(distinctKeys.length * 2);
+            for (int b = 0; b < distinctKeys.length; b++) {
+                bandBuckets.put(distinctKeys[b], Arrays.copyOfRange(members, offsets[b], offsets[b + 1]));
+            }
+            freshBuckets[band] = bandBuckets;
+        }
+
+        State fresh = new State(freshSignatures, freshBuckets);
+        lock.writeLock().lock();
+        try {
+            pending.replay(fresh);
+            state = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("SIMILAR-USERS. Сигнатуры построены, пользователей: {}, заняло {} мс",
+                userIds.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        int user = Math.toIntExact(userId);
+        lock.writeLock().lock();
+        try {
+            int[] current = state.signatures.get(user);
+            int[] updated = current == null ? emptySignature() : current.clone();
+            // минимум по множеству с новым элементом - минимум из старого значения и хэша этого элемента
+            for (int i = 0; i < updated.length; i++) {
+                updated[i] = Math.min(updated[i], hash(Math.toIntExact(filmId), i));
+            }
+            setSignature(user, updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        int user = Math.toIntExact(userId);
+        lock.writeLock().lock();
+        try {
+            // после удаления минимум не восстановить по сигнатуре, поэтому она считается заново;
+            // лайки читаются под блокировкой индекса, чтобы не потерять одновременный лайк
+            RoaringBitmap films = likeMatrix.getFilms(userId);
+            setSignature(user, films.isEmpty() ? null : signature(films));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Вызывается под блокировкой записи. В журнал перестроения попадает итоговая сигнатура, а не лайк:
+     * ее повторная установка ничего не меняет, даже если лайк уже попал в снимок.
+     */
+    private void setSignature(int userId, int[] signature) {
+        pending.apply(state, current -> current.replace(userId, signature));
+    }
+
+    private int[] signature(RoaringBitmap films) {
+        int[] signature = emptySignature();
+        films.forEach((int filmId) -> {
+            for (int i = 0; i < signature.length; i++) {
+                signature[i] = Math.min(signature[i], hash(filmId, i));
+            }
+        });
+        return signature;
+    }
+
+    private int[] emptySignature() {
+        int[] signature = new int[multipliers.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    /**
+     * i-я хэш-функция семейства: линейное преобразование с последующим перемешиванием битов (fmix64 из MurmurHash3).
+     */
+    private int hash(int filmId, int i) {
+        long h = filmId * multipliers[i] + increments[i];
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[i];
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> Map<Long, V>[] emptyBuckets() {
+        Map<Long, V>[] result = new Map[bands];
+        for (int band = 0; band < bands; band++) {
+            result[band] = new HashMap<>();
+        }
+        return result;
+    }
+
+    private final class State {
+        private final Map<Integer, int[]> signatures;
+        // для каждой полосы: ключ полосы -> пользователи, отсортированные по возрастанию
+        private final Map<Long, int[]>[] buckets;
+
+        private State(Map<Integer, int[]> signatures, Map<Long, int[]>[] buckets) {
+            this.signatures = signatures;
+            this.buckets = buckets;
+        }
+
+        void replace(int userId, int[] updated) {
+            int[] current = signatures.get(userId);
+            for (int band = 0; band < bands; band++) {
+                long oldKey = current == null ? 0 : bandKey(current, band);
+                long newKey = updated == null ? 0 : bandKey(updated, band);
+                if (current != null && updated != null && oldKey == newKey) {
+                    continue;
+                }
+                if (current != null) {
+                    buckets[band].computeIfPresent(oldKey, (key, users) -> without(users, userId));
+                }
+                if (updated != null) {
+                    buckets[band].merge(newKey, new int[]{userId}, (users, single) -> with(users, userId));
+                }
+            }
+            if (updated == null) {
+                signatures.remove(userId);
+            } else {
+                signatures.put(userId, updated);
+            }
+        }
+    }
+
+    private static int[] with(int[] users, int userId) {
+        int position = Arrays.binarySearch(users, userId);
+        if (position >= 0) {
+            return users;
+        }
+        position = -position - 1;
+        int[] result = new int[users.length + 1];
+        System.arraycopy(users, 0, result, 0, position);
+        result[position] = userId;
+        System.arraycopy(users, position, result, position + 1, users.length - position);
+        return result;
+    }
+
+    private static int[] without(int[] users, int userId) {
+        int position = Arrays.binarySearch(users, userId);
+        if (position < 0) {
+            return users;
+        }
+        if (users.length == 1) {
+            return null;
+        }
+        int[] result = new int[users.length - 1];
+        System.arraycopy(users, 0, result, 0, position);
+        System.arraycopy(users, position + 1, result, position, users.length - position - 1);
+        return result;
+    }
+}
@@ -0,0 +1,253 @@
+package ru.yandex.practicum.filmorate.job;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.recommendation.AlsTrainer;
+import ru.yandex.practicum.filmorate.recommendation.FactorModel;
+import ru.yandex.practicum.filmorate.recommendation.FactorizedRecommender;
+import ru.yandex.practicum.filmorate.repository.factor.FactorRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Обучает модель факторов по расписанию, сохраняет ее и оценивает: время обучения, пик кучи во время
+ * обучения, объем векторов и полнота (recall) на отложенных лайках выборки пользователей. Обучение идет
+ * в собственном потоке, одно за раз; старт, расписание и операция als актуатора только ставят его
+ * в очередь. По HTTP операция по умолчанию не открыта: ее можно открыть на отдельном порту
+ * управления ({@code management.server.port}).
+ */
+@Component
+@Endpoint(id = "als")
+@RequiredArgsConstructor
+@Slf4j
+public class AlsTrainingJob {
+    private final LikeMatrix likeMatrix;
+    private final AlsTrainer trainer;
+    private final FactorRepository factorRepository;
+    private final FactorizedRecommender factorizedRecommender;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("als-training").daemon().factory());
+    private final AtomicBoolean training = new AtomicBoolean();
+
+    private Timer trainingTimer;
+    private volatile Map<String, Object> lastReport = Map.of();
+    private volatile long factorBytes;
+    private volatile long peakHeapBytes;
+    private volatile double recall;
+
+    @Value("${filmorate.recommendations.als.train-on-startup}")
+    private boolean trainOnStartup;
+
+    @Value("${filmorate.recommendations.als.evaluation-users}")
+    private int evaluationUsers;
+
+    @Value("${filmorate.recommendations.als.evaluation-count}")
+    private int evaluationCount;
+
+    @Value("${filmorate.recommendations.als.evaluation-holdout}")
+    private double evaluationHoldout;
+
+    @PostConstruct
+    public void init() {
+        trainingTimer = meterRegistry.timer("filmorate.recommendations.als.training");
+        Gauge.builder("filmorate.recommendations.als.factor.bytes", this, job -> job.factorBytes)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.recommendations.als.peak.heap.bytes", this, job -> job.peakHeapBytes)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.recommendations.als.recall", this, job -> job.recall)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void trainOnStartup() {
+        if (trainOnStartup) {
+            submit();
+        }
+    }
+
+    @Scheduled(cron = "${filmorate.recommendations.als.train-cron}")
+    public void scheduledTraining() {
+        submit();
+    }
+
+    /**
+     * Ставит обучение в очередь, если оно еще не идет.
+     *
+     * @return {@code submitted = false}, если обучение уже идет
+     */
+    @WriteOperation
+    public Map<String, Object> submit() {
+        if (!training.compareAndSet(false, true)) {
+            log.info("ALS. Обучение уже идет, запуск пропущен");
+            return Map.of("submitted", false);
+        }
+        executor.execute(() -> {
+            try {
+                train();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("ALS. Обучение прервано");
+            } catch (RuntimeException e) {
+                log.error("ALS. Обучение завершилось ошибкой", e);
+            } finally {
+                training.set(false);
+            }
+        });
+        return Map.of("submitted", true);
+    }
+
+    private void train() throws InterruptedException {
+        Map<Integer, RoaringBitmap> userFilms = likeMatrix.getUserFilms();
+        long baseHeapBytes = resetPeakHeap();
+        long start = System.nanoTime();
+        FactorModel model = trainer.train(userFilms);
+        long trainingMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        trainingTimer.record(trainingMs, TimeUnit.MILLISECONDS);
+        peakHeapBytes = peakHeap();
+
+        factorRepository.replaceAll(model.getUserFactors(), model.getFilmFactors());
+        factorizedRecommender.setModel(model);
+        factorBytes = model.getFactorBytes();
+
+        long evaluationStart = System.nanoTime();
+        Holdout holdout = holdout(userFilms);
+        recall = evaluate(holdout);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", model.getUserCount());
+        report.put("films", model.getFilmCount());
+        report.put("trainingMs", trainingMs);
+        report.put("baseHeapBytes", baseHeapBytes);
+        report.put("peakHeapBytes", peakHeapBytes);
+        report.put("factorBytes", factorBytes);
+        report.put("evaluationUsers", holdout.hidden().size());
+        report.put("evaluationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - evaluationStart));
+        report.put("recall", recall);
+        lastReport = report;
+        log.info("ALS. Модель обучена: {}", report);
+    }
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        return lastReport;
+    }
+
+    /**
+     * Откладывает у {@code evaluation-users} случайных пользователей с двумя и больше лайками долю
+     * {@code evaluation-holdout} лайков, но не меньше одного.
+     */
+    private Holdout holdout(Map<Integer, RoaringBitmap> userFilms) {
+        Random random = new Random(42);
+        List<Integer> candidates = new ArrayList<>(userFilms.keySet().stream()
+                .filter(userId -> userFilms.get(userId).getCardinality() > 1)
+                .sorted()
+                .toList());
+        Collections.shuffle(candidates, random);
+        Map<Integer, RoaringBitmap> training = new HashMap<>(userFilms);
+        Map<Integer, RoaringBitmap> hidden = new HashMap<>();
+        for (int userId : candidates.subList(0, Math.min(evaluationUsers, candidates.size()))) {
+            int[] films = userFilms.get(userId).toArray();
+            int count = Math.max(1, (int) (films.length * evaluationHoldout));
+            for (int i = 0; i < count; i++) {
+                int j = i + random.nextInt(films.length - i);
+                int film = films[i];
+                films[i] = films[j];
+                films[j] = film;
+            }
+            RoaringBitmap hiddenFilms = RoaringBitmap.bitmapOf(Arrays.copyOf(films, count));
+            training.put(userId, RoaringBitmap.andNot(userFilms.get(userId), hiddenFilms));
+            hidden.put(userId, hiddenFilms);
+        }
+        return new Holdout(training, hidden);
+    }
+
+    /**
+     * Полнота на отложенных лайках: отдельная модель обучается без них, и для каждого пользователя выборки
+     * считается доля отложенных фильмов среди {@code evaluation-count} лучших рекомендаций, из которых
+     * исключены оставшиеся лайки. Восстановление лайков, которые модель видела при обучении, качество
+     * рекомендаций не показывает.
+     */
+    private double evaluate(Holdout holdout) throws InterruptedException {
+        if (holdout.hidden().isEmpty()) {
+            return 0;
+        }
+        FactorModel model = trainer.train(holdout.training());
+        long expectedTotal = 0;
+        long matched = 0;
+        for (Map.Entry<Integer, RoaringBitmap> entry : holdout.hidden().entrySet()) {
+            RoaringBitmap hiddenFilms = entry.getValue();
+            List<Long> top = model.recommend(entry.getKey(), holdout.training().get(entry.getKey()), evaluationCount);
+            expectedTotal += Math.min(hiddenFilms.getCardinality(), evaluationCount);
+            matched += top.stream().filter(filmId -> hiddenFilms.contains(Math.toIntExact(filmId))).count();
+        }
+        return expectedTotal == 0 ? 0 : (double) matched / expectedTotal;
+    }
+
+    /**
+     * Сбрасывает пики пулов кучи.
+     *
+     * @return занятая куча перед обучением
+     */
+    private static long resetPeakHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Сумма пиков пулов кучи с последнего сброса: верхняя оценка пика, пулы достигают его в разное время.
+     * Учитывает и память, занятую параллельно с обучением другими потоками приложения.
+     */
+    private static long peakHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    /**
+     * @param training лайки для обучения оценочной модели, без отложенных
+     * @param hidden   отложенные лайки пользователей выборки
+     */
+    private record Holdout(Map<Integer, RoaringBitmap> training, Map<Integer, RoaringBitmap> hidden) {
+    }
+}
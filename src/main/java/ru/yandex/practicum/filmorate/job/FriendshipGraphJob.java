@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.job;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.FriendshipGraph;
+import ru.yandex.practicum.filmorate.repository.user.UserRepository;
+
+/**
+ * Заполняет граф дружбы при старте; дальше он поддерживается сервисом пользователей.
+ */
+@Component
+@RequiredArgsConstructor
+public class FriendshipGraphJob {
+    private final UserRepository userRepository;
+    private final FriendshipGraph friendshipGraph;
+
+    @PostConstruct
+    public void init() {
+        friendshipGraph.rebuild(userRepository::forEachFriendship);
+    }
+}
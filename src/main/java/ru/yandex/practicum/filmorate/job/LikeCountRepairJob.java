@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.like.LikeRepository;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LikeCountRepairJob {
+    private final LikeRepository likeRepository;
+
+    @Scheduled(cron = "${filmorate.likes.repair-cron}")
+    public void repair() {
+        int repaired = likeRepository.recalculateLikeCounts();
+        if (repaired > 0) {
+            log.warn("LIKE-COUNT-REPAIR. Пересчитаны счетчики лайков у {} фильмов", repaired);
+        } else {
+            log.debug("LIKE-COUNT-REPAIR. Счетчики лайков согласованы с таблицей LIKES");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.job;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.RebuildableIndex;
+import ru.yandex.practicum.filmorate.index.UserSimilarityIndex;
+import ru.yandex.practicum.filmorate.repository.like.LikeRepository;
+
+import java.util.List;
+
+/**
+ * Заполняет матрицу лайков и построенные по ней индексы похожих фильмов и пользователей при старте;
+ * дальше они поддерживаются событиями лайков. Индексы периодически пересчитываются целиком: при снятии
+ * лайков фильмы выпадают из списков похожих без замены, а сигнатуры пользователей не обновляются
+ * при удалении фильмов.
+ */
+@Component
+@RequiredArgsConstructor
+public class LikeMatrixJob {
+    private final LikeRepository likeRepository;
+    private final LikeMatrix likeMatrix;
+    private final FilmSimilarityIndex similarityIndex;
+    private final UserSimilarityIndex userSimilarityIndex;
+
+    @PostConstruct
+    public void init() throws InterruptedException {
+        likeMatrix.rebuild(likeRepository::forEachLike);
+        rebuildSimilarFilms();
+        rebuildSimilarUsers();
+    }
+
+    @Scheduled(cron = "${filmorate.similar-films.rebuild-cron}")
+    public synchronized void rebuildSimilarFilms() throws InterruptedException {
+        // перестроение начинается до снимка матрицы, чтобы лайки после него не потерялись при подмене
+        RebuildableIndex.rebuild(List.of(similarityIndex), () -> {
+            similarityIndex.rebuild(likeMatrix.getUserFilms(), likeMatrix.getFilmUsers());
+            return null;
+        });
+    }
+
+    @Scheduled(cron = "${filmorate.similar-users.rebuild-cron}")
+    public synchronized void rebuildSimilarUsers() {
+        RebuildableIndex.rebuild(List.of(userSimilarityIndex), () -> {
+            userSimilarityIndex.rebuild(likeMatrix.getUserFilms());
+            return null;
+        });
+    }
+}
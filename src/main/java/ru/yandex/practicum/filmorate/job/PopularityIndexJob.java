@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.job;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.RebuildableIndex;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сверяет индекс популярности с базой: каждый раз общий раздел, разделы всех жанров и раздел одного года
+ * выпуска, по очереди. Лайки продолжают приходить и во время сверки, поэтому расходящийся раздел читается
+ * повторно, и индекс перестраивается, только если расхождение держится.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PopularityIndexJob {
+    private final FilmRepository filmRepository;
+    private final ReferenceDataCache referenceData;
+    private final FilmPopularityIndex popularityIndex;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong drift = new AtomicLong();
+    private int checks;
+
+    @Value("${filmorate.popularity.check-size}")
+    private int checkSize;
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("filmorate.popularity.drift", drift);
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.popularity.check-interval-ms}")
+    public synchronized void checkConsistency() {
+        Set<Long> persistent = new HashSet<>();
+        for (Partition partition : partitions()) {
+            Set<Long> differing = findDrift(partition);
+            if (!differing.isEmpty()) {
+                differing.retainAll(findDrift(partition));
+                persistent.addAll(differing);
+            }
+        }
+        drift.set(persistent.size());
+        if (!persistent.isEmpty()) {
+            log.warn("POPULARITY-INDEX. Индекс расходится с базой по фильмам {}, перестраиваем", persistent);
+            rebuild();
+        }
+    }
+
+    private Set<Long> findDrift(Partition partition) {
+        return popularityIndex.findDrift(
+                filmRepository.getTopLikeCounts(checkSize, partition.genreId(), partition.year()),
+                checkSize, partition.genreId(), partition.year());
+    }
+
+    private List<Partition> partitions() {
+        List<Partition> partitions = new ArrayList<>();
+        partitions.add(new Partition(null, null));
+        referenceData.getGenres().forEach(genre -> partitions.add(new Partition(genre.getId(), null)));
+        List<Integer> years = popularityIndex.getYears();
+        if (!years.isEmpty()) {
+            partitions.add(new Partition(null, years.get(Math.floorMod(checks++, years.size()))));
+        }
+        return partitions;
+    }
+
+    private void rebuild() {
+        RebuildableIndex.rebuild(List.of(popularityIndex), () -> {
+            popularityIndex.rebuild(filmRepository.getAll());
+            return null;
+        });
+    }
+
+    private record Partition(Integer genreId, Integer year) {
+    }
+}
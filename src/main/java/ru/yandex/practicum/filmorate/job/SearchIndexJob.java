@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.job;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.index.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmDescriptionIndex;
+import ru.yandex.practicum.filmorate.index.FilmFuzzyIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.RebuildableIndex;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Заполняет поисковые индексы при старте. Перестроение вручную - операция searchindex актуатора;
+ * по HTTP она по умолчанию не открыта, так как запускает полное перестроение.
+ */
+@Component
+@Endpoint(id = "searchindex")
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexJob {
+    private final FilmRepository filmRepository;
+    private final ReferenceDataCache referenceData;
+    private final FilmSearchIndex searchIndex;
+    private final FilmAutocompleteIndex autocompleteIndex;
+    private final FilmFuzzyIndex fuzzyIndex;
+    private final FilmDescriptionIndex descriptionIndex;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> rebuild() {
+        long start = System.nanoTime();
+        List<RebuildableIndex> indexes = List.of(searchIndex, autocompleteIndex, fuzzyIndex, descriptionIndex);
+        Collection<Film> films = RebuildableIndex.rebuild(indexes, () -> {
+            Collection<Film> snapshot = filmRepository.getAll();
+            Collection<Director> directors = referenceData.getDirectors();
+            searchIndex.rebuild(snapshot, directors);
+            autocompleteIndex.rebuild(snapshot, directors);
+            fuzzyIndex.rebuild(snapshot, directors);
+            descriptionIndex.rebuild(snapshot);
+            return snapshot;
+        });
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("SEARCH-INDEX. Перестроение заняло {} мс", elapsedMs);
+        return Map.of("films", films.size(), "elapsedMs", elapsedMs);
+    }
+}
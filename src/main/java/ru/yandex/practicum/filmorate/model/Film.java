@@ -32,4 +32,5 @@ public class Film {
     private Mpa mpa;
     private LinkedHashSet<Genre> genres;
     private LinkedHashSet<Director> directors;
+    private int likeCount;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Цепочка дружбы: пользователи от начала до конца, каждый следующий - друг предыдущего.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FriendshipPath {
+    private int length;
+    private List<User> users;
+}
@@ -0,0 +1,219 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Разложение неявной матрицы лайков методом чередующихся наименьших квадратов (implicit ALS,
+ * Hu, Koren, Volinsky). Лайк считается предпочтением с уверенностью {@code 1 + alpha},
+ * отсутствие лайка - слабым отрицательным сигналом. На каждом шаге векторы одной стороны
+ * фиксируются, а векторы другой решаются независимо друг от друга на пуле fork-join.
+ */
+@Component
+@Slf4j
+public class AlsTrainer {
+    @Value("${filmorate.recommendations.als.factors}")
+    private int factors;
+
+    @Value("${filmorate.recommendations.als.iterations}")
+    private int iterations;
+
+    @Value("${filmorate.recommendations.als.regularization}")
+    private double regularization;
+
+    @Value("${filmorate.recommendations.als.alpha}")
+    private double alpha;
+
+    @Value("${filmorate.recommendations.als.parallelism}")
+    private int parallelism;
+
+    /**
+     * @param userFilms строки матрицы лайков: пользователь -> лайкнутые фильмы
+     */
+    public FactorModel train(Map<Integer, RoaringBitmap> userFilms) throws InterruptedException {
+        int[] userIds = userFilms.keySet().stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
+        RoaringBitmap allFilms = new RoaringBitmap();
+        userFilms.values().forEach(allFilms::or);
+        int[] filmIds = allFilms.toArray();
+        if (userIds.length == 0 || filmIds.length == 0) {
+            return FactorModel.empty();
+        }
+
+        // строки и столбцы матрицы в плотной нумерации, отсортированные
+        int[][] userRows = new int[userIds.length][];
+        int[] filmLikes = new int[filmIds.length];
+        for (int u = 0; u < userIds.length; u++) {
+            int[] films = userFilms.get(userIds[u]).toArray();
+            for (int i = 0; i < films.length; i++) {
+                films[i] = Arrays.binarySearch(filmIds, films[i]);
+                filmLikes[films[i]]++;
+            }
+            userRows[u] = films;
+        }
+        int[][] filmRows = new int[filmIds.length][];
+        for (int f = 0; f < filmIds.length; f++) {
+            filmRows[f] = new int[filmLikes[f]];
+        }
+        int[] filled = new int[filmIds.length];
+        for (int u = 0; u < userRows.length; u++) {
+            for (int f : userRows[u]) {
+                filmRows[f][filled[f]++] = u;
+            }
+        }
+
+        Random random = new Random(42);
+        double[][] userFactors = new double[userIds.length][factors];
+        double[][] filmFactors = new double[filmIds.length][factors];
+        for (double[] vector : filmFactors) {
+            for (int i = 0; i < factors; i++) {
+                vector[i] = random.nextGaussian() * 0.01;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                solve(pool, userFactors, filmFactors, userRows);
+                solve(pool, filmFactors, userFactors, filmRows);
+                log.debug("ALS. Итерация {} из {} завершена", iteration + 1, iterations);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<Long, float[]> users = new HashMap<>(userIds.length);
+        for (int u = 0; u < userIds.length; u++) {
+            users.put((long) userIds[u], toFloats(userFactors[u]));
+        }
+        Map<Long, float[]> films = new HashMap<>(filmIds.length);
+        for (int f = 0; f < filmIds.length; f++) {
+            films.put((long) filmIds[f], toFloats(filmFactors[f]));
+        }
+        return new FactorModel(users, films);
+    }
+
+    /**
+     * Пересчитывает все векторы {@code target} при фиксированных {@code fixed}:
+     * (Fᵀ F + alpha * Σ f fᵀ + λI) x = (1 + alpha) * Σ f, где суммы идут по лайкам строки.
+     */
+    private void solve(ForkJoinPool pool, double[][] target, double[][] fixed, int[][] rows)
+            throws InterruptedException {
+        double[][] gram = gram(pool, fixed);
+        try {
+            pool.submit(() -> IntStream.range(0, target.length).parallel().forEach(row -> {
+                double[][] a = new double[factors][factors];
+                double[] b = new double[factors];
+                for (int i = 0; i < factors; i++) {
+                    System.arraycopy(gram[i], 0, a[i], 0, factors);
+                    a[i][i] += regularization;
+                }
+                for (int other : rows[row]) {
+                    double[] vector = fixed[other];
+                    for (int i = 0; i < factors; i++) {
+                        double scaled = alpha * vector[i];
+                        for (int j = 0; j <= i; j++) {
+                            a[i][j] += scaled * vector[j];
+                        }
+                        b[i] += (1 + alpha) * vector[i];
+                    }
+                }
+                target[row] = solveCholesky(a, b);
+            })).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Шаг ALS завершился ошибкой", e.getCause());
+        }
+    }
+
+    /**
+     * Fᵀ F по частям на пуле; заполняется только нижний треугольник.
+     */
+    private double[][] gram(ForkJoinPool pool, double[][] vectors) throws InterruptedException {
+        int chunk = Math.max(1, vectors.length / (pool.getParallelism() * 4));
+        try {
+            return pool.submit(() -> IntStream.range(0, (vectors.length + chunk - 1) / chunk).parallel()
+                    .mapToObj(part -> {
+                        double[][] partial = new double[factors][factors];
+                        for (int v = part * chunk; v < Math.min(vectors.length, (part + 1) * chunk); v++) {
+                            double[] vector = vectors[v];
+                            for (int i = 0; i < factors; i++) {
+                                for (int j = 0; j <= i; j++) {
+                                    partial[i][j] += vector[i] * vector[j];
+                                }
+                            }
+                        }
+                        return partial;
+                    })
+                    .reduce((first, second) -> {
+                        for (int i = 0; i < factors; i++) {
+                            for (int j = 0; j <= i; j++) {
+                                first[i][j] += second[i][j];
+                            }
+                        }
+                        return first;
+                    })
+                    .orElseGet(() -> new double[factors][factors])).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Шаг ALS завершился ошибкой", e.getCause());
+        }
+    }
+
+    /**
+     * Решает A x = b для симметричной положительно определенной A, заданной нижним треугольником;
+     * разложение Холецкого выполняется на месте.
+     */
+    private static double[] solveCholesky(double[][] a, double[] b) {
+        int n = b.length;
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j][j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[j][k] * a[j][k];
+            }
+            a[j][j] = Math.sqrt(diagonal);
+            for (int i = j + 1; i < n; i++) {
+                double sum = a[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= a[i][k] * a[j][k];
+                }
+                a[i][j] = sum / a[j][j];
+            }
+        }
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= a[i][k] * y[k];
+            }
+            y[i] = sum / a[i][i];
+        }
+        double[] x = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = y[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= a[k][i] * x[k];
+            }
+            x[i] = sum / a[i][i];
+        }
+        return x;
+    }
+
+    private static float[] toFloats(double[] vector) {
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (float) vector[i];
+        }
+        return result;
+    }
+}
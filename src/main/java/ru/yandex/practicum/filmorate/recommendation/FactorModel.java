@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Векторы скрытых факторов пользователей и фильмов. Оценка фильма для пользователя -
+ * скалярное произведение их векторов.
+ */
+public final class FactorModel {
+    private final Map<Long, float[]> userFactors;
+    private final long[] filmIds;
+    private final float[][] filmFactors;
+
+    public FactorModel(Map<Long, float[]> userFactors, Map<Long, float[]> filmFactors) {
+        this.userFactors = Map.copyOf(userFactors);
+        this.filmIds = filmFactors.keySet().stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+        this.filmFactors = new float[filmIds.length][];
+        for (int i = 0; i < filmIds.length; i++) {
+            this.filmFactors[i] = filmFactors.get(filmIds[i]);
+        }
+    }
+
+    public static FactorModel empty() {
+        return new FactorModel(Map.of(), Map.of());
+    }
+
+    /**
+     * @param excluded фильмы, которые не рекомендуются, обычно уже лайкнутые пользователем
+     * @return до {@code count} фильмов по убыванию оценки; пустой список, если пользователя не было при обучении
+     */
+    public List<Long> recommend(long userId, RoaringBitmap excluded, int count) {
+        float[] user = userFactors.get(userId);
+        if (user == null || count <= 0) {
+            return List.of();
+        }
+        // в куче остаются лучшие count фильмов, наверху худший из них
+        Comparator<Scored> byScore = Comparator.comparingDouble(Scored::score).reversed()
+                .thenComparingLong(Scored::filmId);
+        PriorityQueue<Scored> best = new PriorityQueue<>(count + 1, byScore.reversed());
+        for (int i = 0; i < filmIds.length; i++) {
+            if (excluded.contains((int) filmIds[i])) {
+                continue;
+            }
+            double score = dot(user, filmFactors[i]);
+            if (best.size() < count) {
+                best.add(new Scored(filmIds[i], score));
+            } else if (score > best.peek().score()) {
+                best.poll();
+                best.add(new Scored(filmIds[i], score));
+            }
+        }
+        return best.stream()
+                .sorted(byScore)
+                .map(Scored::filmId)
+                .toList();
+    }
+
+    public Map<Long, float[]> getUserFactors() {
+        return userFactors;
+    }
+
+    public Map<Long, float[]> getFilmFactors() {
+        Map<Long, float[]> factors = new HashMap<>(filmIds.length);
+        for (int i = 0; i < filmIds.length; i++) {
+            factors.put(filmIds[i], filmFactors[i]);
+        }
+        return factors;
+    }
+
+    public int getUserCount() {
+        return userFactors.size();
+    }
+
+    public int getFilmCount() {
+        return filmIds.length;
+    }
+
+    /**
+     * Объем, занимаемый самими векторами, без накладных расходов коллекций.
+     */
+    public long getFactorBytes() {
+        long floats = 0;
+        for (float[] vector : userFactors.values()) {
+            floats += vector.length;
+        }
+        for (float[] vector : filmFactors) {
+            floats += vector.length;
+        }
+        return floats * Float.BYTES;
+    }
+
+    private static double dot(float[] first, float[] second) {
+        double sum = 0;
+        for (int i = 0; i < first.length; i++) {
+            sum += first[i] * second[i];
+        }
+        return sum;
+    }
+
+    private record Scored(long filmId, double score) {
+    }
+}
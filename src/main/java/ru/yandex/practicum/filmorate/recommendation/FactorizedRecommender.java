@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.repository.factor.FactorRepository;
+
+import java.util.List;
+
+/**
+ * Рекомендации по последней обученной модели факторов. Пользователи, появившиеся
+ * после обучения, получают пустой список до следующего обучения.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FactorizedRecommender {
+    private final FactorRepository factorRepository;
+    private final LikeMatrix likeMatrix;
+    private volatile FactorModel model = FactorModel.empty();
+
+    @PostConstruct
+    public void init() {
+        model = new FactorModel(factorRepository.getUserFactors(), factorRepository.getFilmFactors());
+        log.info("ALS. Загружена модель факторов, пользователей: {}, фильмов: {}",
+                model.getUserCount(), model.getFilmCount());
+    }
+
+    public List<Long> recommend(long userId, int count) {
+        return model.recommend(userId, likeMatrix.getFilms(userId), count);
+    }
+
+    public void setModel(FactorModel model) {
+        this.model = model;
+    }
+}
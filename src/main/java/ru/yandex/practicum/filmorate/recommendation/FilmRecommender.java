@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.CatalogListener;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
+import ru.yandex.practicum.filmorate.index.SimilarityMeasure;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Рекомендации фильмов по лайкам похожих пользователей (user-based collaborative filtering).
+ * Фильм получает сумму сходств соседей, которым он понравился; уже лайкнутые пользователем фильмы
+ * не рекомендуются. Результат кэшируется до изменения окрестности пользователя: его собственных
+ * лайков, лайков его соседей или общих с кем-либо фильмов.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilmRecommender implements CatalogListener {
+    private final LikeMatrix likeMatrix;
+
+    private final Object cacheLock = new Object();
+    private Map<Long, Recommendation> cache;
+    // сосед -> пользователи, чьи закэшированные рекомендации построены с его участием
+    private final Map<Long, Set<Long>> dependents = new HashMap<>();
+    private long version;
+
+    @Value("${filmorate.recommendations.similarity}")
+    private SimilarityMeasure similarity;
+
+    @Value("${filmorate.recommendations.max-neighbours}")
+    private int maxNeighbours;
+
+    @Value("${filmorate.recommendations.max-candidates}")
+    private int maxCandidates;
+
+    @Value("${filmorate.recommendations.max-results}")
+    private int maxResults;
+
+    @Value("${filmorate.recommendations.cache-size}")
+    private int cacheSize;
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Recommendation> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+                unlink(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return до {@code count} идентификаторов фильмов по убыванию оценки
+     */
+    public List<Long> recommend(long userId, int count) {
+        long seenVersion;
+        synchronized (cacheLock) {
+            Recommendation cached = cache.get(userId);
+            if (cached != null) {
+                return limit(cached.filmIds(), count);
+            }
+            seenVersion = version;
+        }
+
+        Recommendation computed = compute(userId);
+        synchronized (cacheLock) {
+            // пока шел расчет, матрица могла измениться: такой результат не кэшируется
+            if (seenVersion == version) {
+                cache.put(userId, computed);
+                computed.neighbours().forEach(neighbourId ->
+                        dependents.computeIfAbsent(neighbourId, key -> new HashSet<>()).add(userId));
+            }
+        }
+        return limit(computed.filmIds(), count);
+    }
+
+    @Override
+    public void onLikeAdded(long filmId, long userId) {
+        invalidate(filmId, userId);
+    }
+
+    @Override
+    public void onLikeRemoved(long filmId, long userId) {
+        invalidate(filmId, userId);
+    }
+
+    @Override
+    public void onFilmDeleted(long filmId) {
+        synchronized (cacheLock) {
+            version++;
+            cache.clear();
+            dependents.clear();
+        }
+    }
+
+    private Recommendation compute(long userId) {
+        RoaringBitmap own = likeMatrix.getFilms(userId);
+        List<LikeMatrix.Neighbour> neighbours = likeMatrix.getNeighbours(userId, maxNeighbours, maxCandidates,
+                similarity);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (LikeMatrix.Neighbour neighbour : neighbours) {
+            if (neighbour.similarity() > 0) {
+                RoaringBitmap.andNot(neighbour.films(), own).forEach((int filmId) ->
+                        scores.merge(filmId, neighbour.similarity(), Double::sum));
+            }
+        }
+        List<Long> filmIds = scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxResults)
+                .map(entry -> (long) entry.getKey())
+                .toList();
+        List<Long> neighbourIds = neighbours.stream()
+                .map(LikeMatrix.Neighbour::userId)
+                .toList();
+        log.debug("RECOMMENDATIONS. Для пользователя {} найдено соседей: {}, фильмов: {}",
+                userId, neighbourIds.size(), filmIds.size());
+        return new Recommendation(filmIds, neighbourIds);
+    }
+
+    /**
+     * Лайк пользователя {@code userId} меняет его собственные рекомендации, рекомендации тех,
+     * у кого он в соседях, и сходство с ним всех, кому нравится тот же фильм.
+     */
+    private void invalidate(long filmId, long userId) {
+        RoaringBitmap filmUsers = likeMatrix.getUsers(filmId);
+        synchronized (cacheLock) {
+            version++;
+            evict(userId);
+            Set<Long> affected = dependents.remove(userId);
+            if (affected != null) {
+                affected.forEach(this::evict);
+            }
+            if (filmUsers.getCardinality() < cache.size()) {
+                filmUsers.forEach((int affectedId) -> evict(affectedId));
+            } else {
+                List.copyOf(cache.keySet()).stream()
+                        .filter(cachedId -> filmUsers.contains(Math.toIntExact(cachedId)))
+                        .forEach(this::evict);
+            }
+        }
+    }
+
+    private void evict(long userId) {
+        Recommendation removed = cache.remove(userId);
+        if (removed != null) {
+            unlink(userId, removed);
+        }
+    }
+
+    private void unlink(long userId, Recommendation recommendation) {
+        recommendation.neighbours().forEach(neighbourId -> {
+            Set<Long> users = dependents.get(neighbourId);
+            if (users != null) {
+                users.remove(userId);
+                if (users.isEmpty()) {
+                    dependents.remove(neighbourId);
+                }
+            }
+        });
+    }
+
+    private static List<Long> limit(List<Long> filmIds, int count) {
+        return filmIds.subList(0, Math.min(count, filmIds.size()));
+    }
+
+    private record Recommendation(List<Long> filmIds, List<Long> neighbours) {
+    }
+}
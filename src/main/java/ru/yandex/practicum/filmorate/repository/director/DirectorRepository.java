@@ -3,12 +3,13 @@ package ru.yandex.practicum.filmorate.repository.director;
 import ru.yandex.practicum.filmorate.model.Director;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
 public interface DirectorRepository {
     Collection<Director> getAll();
 
+    Collection<Director> getAll(int afterId, int limit);
+
     Optional<Director> getById(int directorId);
 
     Director create(Director director);
@@ -16,6 +17,4 @@ public interface DirectorRepository {
     Director update(Director director);
 
     void removeById(int directorId);
-
-    int countMatchingDirectors(List<Integer> directorIds);
 }
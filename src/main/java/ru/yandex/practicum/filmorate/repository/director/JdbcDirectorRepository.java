@@ -12,7 +12,6 @@ import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.repository.BaseJdbcRepository;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -28,6 +27,18 @@ public class JdbcDirectorRepository extends BaseJdbcRepository<Director> impleme
         return jdbc.query(getAllQuery, mapper);
     }
 
+    @Override
+    public Collection<Director> getAll(int afterId, int limit) {
+        String getPageQuery = """
+                SELECT *
+                FROM DIRECTORS
+                WHERE DIRECTOR_ID > :afterId
+                ORDER BY DIRECTOR_ID
+                LIMIT :limit
+                """;
+        return jdbc.query(getPageQuery, Map.of("afterId", afterId, "limit", limit), mapper);
+    }
+
     @Override
     public Optional<Director> getById(int directorId) {
         try {
@@ -78,12 +89,4 @@ public class JdbcDirectorRepository extends BaseJdbcRepository<Director> impleme
 
         jdbc.update(deleteQuery, Map.of("directorId", directorId));
     }
-
-    @Override
-    public int countMatchingDirectors(List<Integer> directorIds) {
-        String sqlQuery = "SELECT COUNT(*) FROM DIRECTORS WHERE DIRECTOR_ID IN (:directorIds)";
-        MapSqlParameterSource params = new MapSqlParameterSource();
-        params.addValue("directorIds", directorIds);
-        return jdbc.queryForObject(sqlQuery, params, Integer.class);
-    }
 }
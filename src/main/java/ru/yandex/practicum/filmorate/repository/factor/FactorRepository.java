@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.repository.factor;
+
+import java.util.Map;
+
+public interface FactorRepository {
+
+    Map<Long, float[]> getUserFactors();
+
+    Map<Long, float[]> getFilmFactors();
+
+    /**
+     * Заменяет все сохраненные векторы; векторы удаленных за время обучения пользователей и фильмов пропускаются.
+     */
+    void replaceAll(Map<Long, float[]> userFactors, Map<Long, float[]> filmFactors);
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.repository.factor;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class JdbcFactorRepository implements FactorRepository {
+    private static final int BATCH_SIZE = 1000;
+
+    private final NamedParameterJdbcOperations jdbc;
+
+    @Override
+    public Map<Long, float[]> getUserFactors() {
+        return getFactors("SELECT USER_ID AS ID, FACTORS FROM USER_FACTORS;");
+    }
+
+    @Override
+    public Map<Long, float[]> getFilmFactors() {
+        return getFactors("SELECT FILM_ID AS ID, FACTORS FROM FILM_FACTORS;");
+    }
+
+    @Override
+    @Transactional
+    public void replaceAll(Map<Long, float[]> userFactors, Map<Long, float[]> filmFactors) {
+        jdbc.update("DELETE FROM USER_FACTORS;", Map.of());
+        jdbc.update("DELETE FROM FILM_FACTORS;", Map.of());
+        insertAll("""
+                INSERT INTO USER_FACTORS (USER_ID, FACTORS)
+                SELECT :id, :factors
+                WHERE EXISTS (SELECT 1 FROM USERS WHERE USER_ID = :id);
+                """, userFactors);
+        insertAll("""
+                INSERT INTO FILM_FACTORS (FILM_ID, FACTORS)
+                SELECT :id, :factors
+                WHERE EXISTS (SELECT 1 FROM FILMS WHERE FILM_ID = :id);
+                """, filmFactors);
+    }
+
+    private Map<Long, float[]> getFactors(String query) {
+        Map<Long, float[]> factors = new HashMap<>();
+        jdbc.query(query, Map.of(), (RowCallbackHandler) rs ->
+                factors.put(rs.getLong("ID"), decode(rs.getBytes("FACTORS"))));
+        return factors;
+    }
+
+    private void insertAll(String query, Map<Long, float[]> factors) {
+        List<SqlParameterSource> batch = new ArrayList<>(BATCH_SIZE);
+        for (Map.Entry<Long, float[]> entry : factors.entrySet()) {
+            batch.add(new MapSqlParameterSource()
+                    .addValue("id", entry.getKey())
+                    .addValue("factors", encode(entry.getValue())));
+            if (batch.size() == BATCH_SIZE) {
+                jdbc.batchUpdate(query, batch.toArray(SqlParameterSource[]::new));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(query, batch.toArray(SqlParameterSource[]::new));
+        }
+    }
+
+    private static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] decode(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
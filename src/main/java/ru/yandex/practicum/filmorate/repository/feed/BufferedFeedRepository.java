@@ -0,0 +1,312 @@
+package ru.yandex.practicum.filmorate.repository.feed;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Записывает события ленты асинхронно: запрос только ставит событие в ограниченную очередь,
+ * а фоновый поток собирает их в пакеты до {@code batch-size} событий или {@code flush-interval-ms}
+ * ожидания и записывает каждый пакет одной транзакцией. При заполненной очереди запрос ждет
+ * свободного места, так что при отставании базы задержка возвращается в запросы, а не копится в памяти.
+ * Время события фиксируется при постановке в очередь, порядок идентификаторов совпадает с порядком очереди:
+ * постановка идет под одной блокировкой с остановкой, а после остановки события пишутся сразу, только когда
+ * очередь уже записана. Записанные события передаются получателям {@link FeedListener} из того же потока.
+ */
+@Repository
+@Primary
+@RequiredArgsConstructor
+@Slf4j
+public class BufferedFeedRepository implements FeedRepository {
+    // метка в очереди: писатель записывает собранное, не дожидаясь конца интервала
+    private static final Event FLUSH_MARKER = Event.builder().build();
+
+    private final JdbcFeedRepository delegate;
+    private final MeterRegistry meterRegistry;
+    // получатели ищутся при первой записи, а не при создании: им самим может быть нужен этот репозиторий
+    private final ObjectProvider<FeedListener> feedListeners;
+    // под этой блокировкой события ставятся в очередь и очередь закрывается при остановке
+    private final Lock enqueueLock = new ReentrantLock();
+    // номер последнего события пользователя в очереди: flush(userId) ждет только его
+    private final Map<Long, Long> lastSequences = new ConcurrentHashMap<>();
+    private BlockingQueue<Event> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile List<FeedListener> listeners;
+    // номер последнего поставленного события, под enqueueLock; номера идут в порядке очереди
+    private long enqueued;
+    // номер последнего обработанного писателем события, под монитором this
+    private long written;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizes;
+    private Counter failures;
+
+    @Value("${filmorate.feed.writer.enabled}")
+    private boolean enabled;
+
+    @Value("${filmorate.feed.writer.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${filmorate.feed.writer.batch-size}")
+    private int batchSize;
+
+    @Value("${filmorate.feed.writer.flush-interval-ms}")
+    private long flushIntervalMs;
+
+    @PostConstruct
+    public void init() {
+        flushTimer = Timer.builder("filmorate.feed.writer.flush").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("filmorate.feed.writer.batch.size").register(meterRegistry);
+        failures = Counter.builder("filmorate.feed.writer.failed").register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("filmorate.feed.writer.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        running = true;
+        writer = Thread.ofPlatform().name("feed-writer").daemon().start(this::drain);
+    }
+
+    @Override
+    public void saveEvent(long userId, Operation operation, EventType eventType, long entityId) {
+        Event event = Event.builder()
+                .timestamp(Instant.now().toEpochMilli())
+                .userId(userId)
+                .eventType(eventType)
+                .operation(operation)
+                .entityId(entityId)
+                .build();
+        if (!enabled) {
+            write(List.of(event));
+            return;
+        }
+        enqueueLock.lock();
+        try {
+            if (!running) {
+                // очередь уже записана при остановке, поэтому порядок идентификаторов сохраняется
+                write(List.of(event));
+                return;
+            }
+            // номер публикуется до постановки: flush(userId) дождется и события, которое еще ставится в очередь
+            lastSequences.put(userId, ++enqueued);
+            putUninterruptibly(event);
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    /**
+     * Дожидается, пока писатель дойдет до последнего события пользователя, поставленного в очередь до вызова;
+     * события остальных пользователей, стоящие за ним, не ждет.
+     */
+    @Override
+    public void flush(long userId) {
+        Long target = lastSequences.get(userId);
+        // записанный номер больше не нужен; если пользователь за это время сохранил новое событие, оно остается
+        if (target != null && awaitWritten(target)) {
+            lastSequences.remove(userId, target);
+        }
+    }
+
+    /**
+     * Дожидается последнего из событий перечисленных пользователей, например друзей для их общей ленты.
+     */
+    @Override
+    public void flush(Collection<Long> userIds) {
+        long target = 0;
+        for (long userId : userIds) {
+            target = Math.max(target, lastSequences.getOrDefault(userId, 0L));
+        }
+        if (target > 0) {
+            awaitWritten(target);
+        }
+    }
+
+    /**
+     * @return {@code true}, если писатель дошел до события с этим номером; {@code false}, если поток записи
+     * остановился раньше или ожидание прервано
+     */
+    private boolean awaitWritten(long target) {
+        synchronized (this) {
+            if (written >= target) {
+                return true;
+            }
+            queue.offer(FLUSH_MARKER);
+            try {
+                while (written < target && writer.isAlive()) {
+                    wait(flushIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return written >= target;
+        }
+    }
+
+    /**
+     * Закрывает очередь и дожидается ее записи. Блокировка постановки держится до конца: новые события
+     * ждут и пишутся сразу только после всех, что уже стоят в очереди.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        enqueueLock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            writer.join();
+            // остаток, если писатель был прерван; новых событий в очереди быть не может
+            List<Event> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            rest.removeIf(event -> event == FLUSH_MARKER);
+            if (!rest.isEmpty()) {
+                write(rest);
+            }
+        } finally {
+            enqueueLock.unlock();
+        }
+        log.info("FEED-WRITER. Очередь событий записана, всего событий: {}", written);
+    }
+
+    /**
+     * Ставит событие в очередь, даже если поток прерван: запись в обход очереди нарушила бы порядок
+     * идентификаторов. Флаг прерывания восстанавливается.
+     */
+    private void putUninterruptibly(Event event) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(event);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                log.warn("FEED-WRITER. Поток записи прерван, в очереди осталось событий: {}", queue.size());
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Собирает пакет: ждет первое событие, затем добирает очередь, пока пакет не заполнится,
+     * не истечет интервал от первого события или не встретится метка {@link #flush()}.
+     */
+    private void collect(List<Event> batch) throws InterruptedException {
+        Event event = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (event != null && event != FLUSH_MARKER) {
+            batch.add(event);
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.removeIf(queued -> queued == FLUSH_MARKER) || batch.size() >= batchSize || !running) {
+                return;
+            }
+            event = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Записывает пакет одной транзакцией; если она не прошла, например из-за события уже удаленного
+     * пользователя, пишет события по одному, чтобы одно такое событие не стоило остальных.
+     * Пакет считается обработанным в любом случае, иначе {@link #flush(long)} ждал бы его до конца.
+     */
+    private void write(List<Event> batch) {
+        try {
+            long start = System.nanoTime();
+            // копия: пакет писателя переиспользуется, а получатели могут хранить список
+            List<Event> saved = List.copyOf(batch);
+            try {
+                delegate.saveEvents(batch);
+            } catch (RuntimeException e) {
+                saved = new ArrayList<>(batch.size());
+                log.warn("FEED-WRITER. Пакет из {} событий не записан, записываем по одному: {}",
+                        batch.size(), e.getMessage());
+                for (Event event : batch) {
+                    try {
+                        delegate.saveEvents(List.of(event));
+                        saved.add(event);
+                    } catch (RuntimeException rowError) {
+                        failures.increment();
+                        log.warn("FEED-WRITER. Событие не записано: {}, причина: {}", event, rowError.getMessage());
+                    }
+                }
+            }
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+            for (FeedListener listener : listeners()) {
+                try {
+                    listener.onEventsSaved(saved);
+                } catch (RuntimeException e) {
+                    log.error("FEED-WRITER. Получатель событий {} завершился ошибкой",
+                            listener.getClass().getSimpleName(), e);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Получатели ищутся один раз. При остановке контекста поиск уже может не пройти, тогда события
+     * записываются без рассылки.
+     */
+    private List<FeedListener> listeners() {
+        List<FeedListener> resolved = listeners;
+        if (resolved == null) {
+            try {
+                resolved = feedListeners.orderedStream().toList();
+            } catch (RuntimeException e) {
+                log.error("FEED-WRITER. Получатели событий недоступны, события не разосланы", e);
+                return List.of();
+            }
+            listeners = resolved;
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.repository.feed;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+/**
+ * Получатель событий ленты, уже записанных в базу. События приходят с идентификаторами,
+ * по возрастанию идентификаторов, из одного потока записи; получатель не должен надолго его задерживать.
+ */
+public interface FeedListener {
+    void onEventsSaved(List<Event> events);
+}
@@ -3,6 +3,18 @@ package ru.yandex.practicum.filmorate.repository.feed;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Operation;
 
+import java.util.Collection;
+
 public interface FeedRepository {
     void saveEvent(long userId, Operation operation, EventType eventType, long entityId);
+
+    /**
+     * Дожидается записи в базу событий пользователя, сохраненных до вызова.
+     */
+    void flush(long userId);
+
+    /**
+     * Дожидается записи в базу событий всех перечисленных пользователей, сохраненных до вызова.
+     */
+    void flush(Collection<Long> userIds);
 }
@@ -4,32 +4,69 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.repository.BaseJdbcRepository;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 @Repository
 public class JdbcFeedRepository extends BaseJdbcRepository<Event> implements FeedRepository {
+    private static final String INSERT_EVENT_QUERY = """
+            INSERT INTO USER_EVENTS (TIMESTAMP, USER_ID, EVENT_TYPE, OPERATION, ENTITY_ID)
+            VALUES (:timestamp, :userId, :eventType, :operation, :entityId);
+            """;
+
     public JdbcFeedRepository(NamedParameterJdbcOperations jdbc, RowMapper<Event> mapper) {
         super(jdbc, mapper);
     }
 
     @Override
     public void saveEvent(long userId, Operation operation, EventType eventType, long entityId) {
-        String sqlQuery = """
-                INSERT INTO USER_EVENTS (TIMESTAMP, USER_ID, EVENT_TYPE, OPERATION, ENTITY_ID)
-                VALUES (:timestamp, :userId, :eventType, :operation, :entityId);
-                """;
-        SqlParameterSource params = new MapSqlParameterSource()
-                .addValue("timestamp", Instant.now().toEpochMilli())
-                .addValue("userId", userId)
-                .addValue("eventType", eventType.name())
-                .addValue("operation", operation.name())
-                .addValue("entityId", entityId);
-        jdbc.update(sqlQuery, params);
+        saveEvents(List.of(Event.builder()
+                .timestamp(Instant.now().toEpochMilli())
+                .userId(userId)
+                .eventType(eventType)
+                .operation(operation)
+                .entityId(entityId)
+                .build()));
+    }
+
+    /**
+     * Записывает события одним пакетом в одной транзакции: при ошибке не сохраняется ни одно.
+     * Событиям проставляются присвоенные базой идентификаторы.
+     */
+    @Transactional
+    public void saveEvents(Collection<Event> events) {
+        SqlParameterSource[] params = events.stream()
+                .map(event -> new MapSqlParameterSource()
+                        .addValue("timestamp", event.getTimestamp())
+                        .addValue("userId", event.getUserId())
+                        .addValue("eventType", event.getEventType().name())
+                        .addValue("operation", event.getOperation().name())
+                        .addValue("entityId", event.getEntityId()))
+                .toArray(SqlParameterSource[]::new);
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(INSERT_EVENT_QUERY, params, keyHolder, new String[]{"EVENT_ID"});
+        Iterator<Map<String, Object>> keys = keyHolder.getKeyList().iterator();
+        events.forEach(event -> event.setEventId(((Number) keys.next().get("EVENT_ID")).longValue()));
+    }
+
+    @Override
+    public void flush(long userId) {
+        // события записываются сразу, ждать нечего
+    }
+
+    @Override
+    public void flush(Collection<Long> userIds) {
+        // события записываются сразу, ждать нечего
     }
 }
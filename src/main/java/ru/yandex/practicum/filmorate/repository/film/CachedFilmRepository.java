@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.repository.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.cache.IdBitmap;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Фильмы по идентификатору читаются через кэш, остальные запросы передаются в базу без изменений.
+ * Проверки существования при включенном битовом множестве идентификаторов не обращаются к базе.
+ * Из кэша отдаются копии, режиссеры в них берутся из текущего справочника: переименование или удаление
+ * режиссера видно сразу, а изменение полученного фильма не портит кэш.
+ */
+@Repository
+@Primary
+@RequiredArgsConstructor
+@Slf4j
+public class CachedFilmRepository implements FilmRepository {
+    private final JdbcFilmRepository delegate;
+    private final EntityCache<Film> filmCache;
+    private final ReferenceDataCache referenceData;
+    private final IdBitmap filmIds = new IdBitmap();
+
+    @Value("${filmorate.repository.id-bitmap.enabled}")
+    private boolean idBitmapEnabled;
+
+    @PostConstruct
+    public void init() {
+        if (idBitmapEnabled) {
+            filmIds.reset(delegate.getAllIds());
+            log.info("ID-BITMAP. Загружены идентификаторы: {}", filmIds.size());
+        }
+    }
+
+    @Override
+    public Film create(Film film) {
+        Film createdFilm = delegate.create(film);
+        filmIds.add(createdFilm.getId());
+        return createdFilm;
+    }
+
+    @Override
+    public Film update(Film film) {
+        try {
+            return delegate.update(film);
+        } finally {
+            filmCache.evict(film.getId());
+        }
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Collection<Film> getAll(long afterId, int limit) {
+        return delegate.getAll(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(int chunkSize, Consumer<Collection<Film>> chunkConsumer) {
+        delegate.streamAll(chunkSize, chunkConsumer);
+    }
+
+    @Override
+    public Optional<Film> getById(Long id) {
+        return filmCache.get(id, delegate::getById).map(this::copy);
+    }
+
+    @Override
+    public Collection<Film> getByIds(Collection<Long> ids) {
+        Map<Long, Film> films = filmCache.getAll(ids, missingIds -> delegate.getByIds(missingIds).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity())));
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(this::copy)
+                .toList();
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return idBitmapEnabled ? filmIds.contains(id) : delegate.existsById(id);
+    }
+
+    @Override
+    public Collection<Film> getByDirector(int directorId, String sortBy) {
+        return delegate.getByDirector(directorId, sortBy);
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+            filmIds.remove(id);
+        } finally {
+            filmCache.evict(id);
+        }
+    }
+
+    @Override
+    public Collection<Film> getMostPopular(int count) {
+        return delegate.getMostPopular(count);
+    }
+
+    @Override
+    public Map<Long, Integer> getTopLikeCounts(int count, Integer genreId, Integer year) {
+        return delegate.getTopLikeCounts(count, genreId, year);
+    }
+
+    private Film copy(Film film) {
+        LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+        film.getGenres().forEach(genre -> genres.add(new Genre(genre.getId(), genre.getName())));
+        // удаленного режиссера в справочнике уже нет, как нет и его связей с фильмами в базе
+        LinkedHashSet<Director> directors = new LinkedHashSet<>();
+        film.getDirectors().forEach(director ->
+                referenceData.getDirector(director.getId()).ifPresent(directors::add));
+        return Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(new Mpa(film.getMpa().getId(), film.getMpa().getName()))
+                .genres(genres)
+                .directors(directors)
+                .likeCount(film.getLikeCount())
+                .build();
+    }
+}
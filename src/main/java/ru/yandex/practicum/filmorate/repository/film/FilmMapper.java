@@ -1,16 +1,22 @@
 package ru.yandex.practicum.filmorate.repository.film;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.LinkedHashSet;
 
 @Component
+@RequiredArgsConstructor
 public class FilmMapper implements RowMapper<Film> {
+    private final ReferenceDataCache referenceData;
+
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
         Mpa mpa = new Mpa();
@@ -26,6 +32,29 @@ public class FilmMapper implements RowMapper<Film> {
                 .mpa(mpa)
                 .genres(new LinkedHashSet<>())
                 .directors(new LinkedHashSet<>())
+                .likeCount(rs.getInt("LIKE_COUNT"))
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Разбирает строку, в которой идентификаторы жанров и режиссеров фильма собраны в массивы
+     * GENRE_IDS и DIRECTOR_IDS. Названия берутся из кэша справочников.
+     */
+    public Film mapRowWithAssociations(ResultSet rs, int rowNum) throws SQLException {
+        Film film = mapRow(rs, rowNum);
+
+        for (Object genreId : toArray(rs.getArray("GENRE_IDS"))) {
+            referenceData.resolveGenre(((Number) genreId).intValue()).ifPresent(film.getGenres()::add);
+        }
+
+        for (Object directorId : toArray(rs.getArray("DIRECTOR_IDS"))) {
+            referenceData.resolveDirector(((Number) directorId).intValue()).ifPresent(film.getDirectors()::add);
+        }
+
+        return film;
+    }
+
+    private static Object[] toArray(Array array) throws SQLException {
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+}
@@ -3,8 +3,9 @@ package ru.yandex.practicum.filmorate.repository.film;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmRepository {
     Film create(Film film);
@@ -13,23 +14,25 @@ public interface FilmRepository {
 
     Collection<Film> getAll();
 
-    Optional<Film> getById(Long id);
+    Collection<Film> getAll(long afterId, int limit);
 
-    Collection<Film> getByDirector(int directorId, String sortBy);
+    void streamAll(int chunkSize, Consumer<Collection<Film>> chunkConsumer);
 
-    void delete(Long id);
-
-    Collection<Film> getMostPopular(int count);
+    Optional<Film> getById(Long id);
 
-    Collection<Film> getCommonFilms(long userId, long friendId);
+    Collection<Film> getByIds(Collection<Long> ids);
 
-    Collection<Film> search(String keyword, Set<String> searchParams);
+    boolean existsById(long id);
 
-    Collection<Film> getPopularFilmsByYear(int year);
+    Collection<Film> getByDirector(int directorId, String sortBy);
 
-    Collection<Film> getPopularFilmsByGenre(int genreId);
+    void delete(Long id);
 
-    Collection<Film> getPopularFilmsByYearAndGenre(int year, int genreId);
+    Collection<Film> getMostPopular(int count);
 
-    Collection<Film> getFilmRecommendations(long userId);
+    /**
+     * @return до {@code count} фильмов жанра и года выпуска, если они указаны, с числом лайков,
+     * в порядке убывания лайков, при равенстве - по идентификатору
+     */
+    Map<Long, Integer> getTopLikeCounts(int count, Integer genreId, Integer year);
 }
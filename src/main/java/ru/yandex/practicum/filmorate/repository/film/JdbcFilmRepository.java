@@ -1,28 +1,20 @@
 package ru.yandex.practicum.filmorate.repository.film;
 
-import lombok.NonNull;
-import org.springframework.context.annotation.Primary;
-import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.ResultSetExtractor;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.SaveDataException;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.repository.BaseJdbcRepository;
-import ru.yandex.practicum.filmorate.repository.director.DirectorMapper;
-import ru.yandex.practicum.filmorate.repository.genre.GenreMapper;
-import ru.yandex.practicum.filmorate.repository.mpa.MpaMapper;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -31,15 +23,21 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Repository
-@Primary
 public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements FilmRepository {
+    private static final int HYDRATION_CHUNK_SIZE = 500;
 
-    public JdbcFilmRepository(NamedParameterJdbcOperations jdbc, RowMapper<Film> mapper) {
+    private final FilmMapper filmMapper;
+    private final ReferenceDataCache referenceData;
+
+    public JdbcFilmRepository(NamedParameterJdbcOperations jdbc, FilmMapper mapper, ReferenceDataCache referenceData) {
         super(jdbc, mapper);
+        this.filmMapper = mapper;
+        this.referenceData = referenceData;
     }
 
     @Override
@@ -137,7 +135,8 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
     public Collection<Film> getAll() {
         // получить фильмы
         String getFilmsQuery = """
-                SELECT F.FilM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME
+                SELECT F.FilM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME,
+                    F.LIKE_COUNT
                 FROM FILMS F
                 JOIN MPA M ON M.MPA_ID = F.MPA_ID;
                 """;
@@ -152,19 +151,46 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
         return films.values();
     }
 
-    private Map<Integer, Director> getIdsDirectorsMap() {
-        return jdbc.query("SELECT * FROM DIRECTORS;", new DirectorMapper()).stream()
-                .collect(Collectors.toMap(Director::getId, Function.identity()));
-    }
+    @Override
+    public Collection<Film> getAll(long afterId, int limit) {
+        String getFilmsQuery = """
+                SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME,
+                    F.LIKE_COUNT
+                FROM FILMS F
+                JOIN MPA M ON M.MPA_ID = F.MPA_ID
+                WHERE F.FILM_ID > :afterId
+                ORDER BY F.FILM_ID
+                LIMIT :limit;
+                """;
+        LinkedHashMap<Long, Film> films = jdbc.query(getFilmsQuery, Map.of("afterId", afterId, "limit", limit), mapper)
+                .stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity(),
+                        (oldValue, newValue) -> oldValue,
+                        LinkedHashMap::new));
+
+        initializeGenresAndDirectors(films);
 
-    private Map<Integer, Genre> getIdsGenresMap() {
-        return jdbc.query("SELECT * FROM GENRES;", new GenreMapper()).stream()
-                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        return films.values();
     }
 
-    private Map<Integer, Mpa> getIdsMpaMap() {
-        return jdbc.query("SELECT * FROM MPA;", new MpaMapper()).stream()
-                .collect(Collectors.toMap(Mpa::getId, Function.identity()));
+    /**
+     * Читает фильмы порциями по ключу: курсор не держит соединение, пока загружаются связи порции
+     * и пока порция пишется клиенту, поэтому медленные клиенты не занимают пул соединений.
+     */
+    @Override
+    public void streamAll(int chunkSize, Consumer<Collection<Film>> chunkConsumer) {
+        long afterId = 0;
+        while (true) {
+            Collection<Film> chunk = getAll(afterId, chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunkConsumer.accept(chunk);
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            afterId = chunk.stream().reduce((first, second) -> second).orElseThrow().getId();
+        }
     }
 
     @Override
@@ -182,42 +208,38 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
     }
 
     private void initializeGenresAndDirectors(Map<Long, Film> films) {
-        // получить все жанры
-        Map<Integer, Genre> genres = getIdsGenresMap();
-        // получить всех режиссеров
-        Map<Integer, Director> directors = getIdsDirectorsMap();
-        // получить фильмы-жанры
-        jdbc.query("SELECT * FROM FILMS_GENRES;", new ResultSetExtractor<Film>() {
-            @Override
-            public Film extractData(@NonNull ResultSet rs) throws SQLException, DataAccessException {
-
-                Film film = null;
-                while (rs.next()) {
-                    film = films.get(rs.getLong("FILM_ID"));
-                    if (film != null) {
-                        Genre genre = genres.get(rs.getInt("GENRE_ID"));
-                        film.getGenres().add(genre);
-                    }
-                }
-                return film;
+        // связи загружаем только для найденных фильмов, порциями, чтобы не раздувать IN-списки
+        List<Long> filmIds = List.copyOf(films.keySet());
+        for (int from = 0; from < filmIds.size(); from += HYDRATION_CHUNK_SIZE) {
+            List<Long> chunk = filmIds.subList(from, Math.min(from + HYDRATION_CHUNK_SIZE, filmIds.size()));
+
+            // справочники разрешаются после чтения: при промахе кэша они дочитываются из базы,
+            // и это обращение не должно идти, пока открыт результат запроса
+            String getFilmsGenresQuery = """
+                    SELECT FILM_ID, GENRE_ID
+                    FROM FILMS_GENRES
+                    WHERE FILM_ID IN (:filmIds)
+                    ORDER BY FILM_ID, GENRE_ID;
+                    """;
+            List<long[]> filmGenres = jdbc.query(getFilmsGenresQuery, Map.of("filmIds", chunk),
+                    (rs, rowNum) -> new long[]{rs.getLong("FILM_ID"), rs.getInt("GENRE_ID")});
+            for (long[] filmGenre : filmGenres) {
+                referenceData.resolveGenre((int) filmGenre[1]).ifPresent(films.get(filmGenre[0]).getGenres()::add);
             }
-        });
-        // получить режиссеров фильмов
-        jdbc.query("SELECT * FROM FILMS_DIRECTORS;", new ResultSetExtractor<Film>() {
-            @Override
-            public Film extractData(@NonNull ResultSet rs) throws SQLException, DataAccessException {
-
-                Film film = null;
-                while (rs.next()) {
-                    film = films.get(rs.getLong("FILM_ID"));
-                    if (film != null) {
-                        Director director = directors.get(rs.getInt("DIRECTOR_ID"));
-                        film.getDirectors().add(director);
-                    }
-                }
-                return film;
+
+            String getFilmsDirectorsQuery = """
+                    SELECT FILM_ID, DIRECTOR_ID
+                    FROM FILMS_DIRECTORS
+                    WHERE FILM_ID IN (:filmIds)
+                    ORDER BY FILM_ID, DIRECTOR_ID;
+                    """;
+            List<long[]> filmDirectors = jdbc.query(getFilmsDirectorsQuery, Map.of("filmIds", chunk),
+                    (rs, rowNum) -> new long[]{rs.getLong("FILM_ID"), rs.getInt("DIRECTOR_ID")});
+            for (long[] filmDirector : filmDirectors) {
+                referenceData.resolveDirector((int) filmDirector[1])
+                        .ifPresent(films.get(filmDirector[0]).getDirectors()::add);
             }
-        });
+        }
     }
 
     private LinkedHashMap<Long, Film> getByYear(int directorId) {
@@ -229,12 +251,12 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
                     F.RELEASE_DATE,
                     F.DURATION,
                     M.MPA_ID,
-                    M.NAME as MPA_NAME
+                    M.NAME as MPA_NAME,
+                    F.LIKE_COUNT
                 FROM FILMS F
                 JOIN MPA M ON M.MPA_ID = F.MPA_ID
                 JOIN FILMS_DIRECTORS FD ON FD.FILM_ID = F.FILM_ID
                 WHERE FD.DIRECTOR_ID = :directorId
-                GROUP BY F.FILM_ID
                 ORDER BY F.RELEASE_DATE""";
         return jdbc.query(getFilmsByYear, Map.of("directorId", directorId), mapper).stream()
                 .collect(Collectors.toMap(Film::getId, Function.identity(),
@@ -252,14 +274,12 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
                     F.DURATION,
                     M.MPA_ID,
                     M.NAME as MPA_NAME,
-                    COUNT(L.FILM_ID) as LIKES
+                    F.LIKE_COUNT
                 FROM FILMS F
                 JOIN MPA M ON M.MPA_ID = F.MPA_ID
                 JOIN FILMS_DIRECTORS FD ON FD.FILM_ID = F.FILM_ID
-                LEFT JOIN LIKES L ON L.FILM_ID = F.FILM_ID
                 WHERE FD.DIRECTOR_ID = :directorId
-                GROUP BY F.FILM_ID
-                ORDER BY LIKES DESC""";
+                ORDER BY F.LIKE_COUNT DESC, F.FILM_ID""";
         return jdbc.query(getFilmsByLikes, Map.of("directorId", directorId), mapper).stream()
                 .collect(Collectors.toMap(Film::getId, Function.identity(),
                         (oldValue, newValue) -> oldValue,
@@ -269,161 +289,90 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
     @Override
     public Optional<Film> getById(Long id) {
         try {
+            // идентификаторы жанров и режиссеров собираются в массивы в том же запросе,
+            // чтобы обойтись одним обращением к базе; сами справочники берутся из кэша
             String sqlQuery = """
-                    SELECT f.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME
+                    SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME,
+                        F.LIKE_COUNT,
+                        (SELECT ARRAY_AGG(FG.GENRE_ID ORDER BY FG.GENRE_ID)
+                            FROM FILMS_GENRES FG
+                            WHERE FG.FILM_ID = F.FILM_ID) AS GENRE_IDS,
+                        (SELECT ARRAY_AGG(FD.DIRECTOR_ID ORDER BY FD.DIRECTOR_ID)
+                            FROM FILMS_DIRECTORS FD
+                            WHERE FD.FILM_ID = F.FILM_ID) AS DIRECTOR_IDS
                     FROM FILMS F
                     JOIN MPA M ON M.MPA_ID = F.MPA_ID
-                    WHERE FILM_ID = :filmId;
-                    """;
-            Film film = jdbc.queryForObject(sqlQuery, Map.of("filmId", id), mapper);
-            Objects.requireNonNull(film);
-
-            String getFilmGenresQuery = """
-                    SELECT G.GENRE_ID, G.NAME
-                    FROM FILMS_GENRES FG
-                    JOIN GENRES G ON G.GENRE_ID = FG.GENRE_ID
-                    WHERE FILM_ID = :filmId;
-                    """;
-            List<Genre> filmGenres = jdbc.query(getFilmGenresQuery, Map.of("filmId", id), new GenreMapper());
-            film.getGenres().addAll(filmGenres);
-
-            String getFilmDirectorsQuery = """
-                    SELECT D.DIRECTOR_ID, D.NAME
-                    FROM FILMS_DIRECTORS FD
-                    JOIN DIRECTORS D ON D.DIRECTOR_ID = FD.DIRECTOR_ID
-                    WHERE FILM_ID = :filmId;
+                    WHERE F.FILM_ID = :filmId;
                     """;
-            List<Director> filmDirectors = jdbc.query(
-                    getFilmDirectorsQuery,
-                    Map.of("filmId", id),
-                    new DirectorMapper());
-            film.getDirectors().addAll(filmDirectors);
-
-            return Optional.of(film);
-        } catch (NullPointerException | EmptyResultDataAccessException ignored) {
+            Film film = jdbc.queryForObject(sqlQuery, Map.of("filmId", id), filmMapper::mapRowWithAssociations);
+            return Optional.ofNullable(film);
+        } catch (EmptyResultDataAccessException ignored) {
             return Optional.empty();
         }
     }
 
-    @Override
-    public void delete(Long id) {
-        String deleteFilmQuery = "DELETE FROM FILMS WHERE FILM_ID = :filmId;";
-        jdbc.update(deleteFilmQuery, Map.of("filmId", id));
+    /**
+     * Идентификаторы всех записей, нужны для начального заполнения
+     * {@link ru.yandex.practicum.filmorate.cache.IdBitmap}.
+     */
+    public Collection<Long> getAllIds() {
+        return jdbc.getJdbcOperations().queryForList("SELECT FILM_ID FROM FILMS", Long.class);
     }
 
     @Override
-    public Collection<Film> getMostPopular(int count) {
-        String sqlQuery = """
-                SELECT
-                    F.FILM_ID,
-                    F.NAME,
-                    F.DESCRIPTION,
-                    F.RELEASE_DATE,
-                    F.DURATION,
-                    F.MPA_ID,
-                    M.NAME as MPA_NAME,
-                    COUNT(L.FILM_ID) AS LIKE_COUNT
-                FROM FILMS F
-                LEFT JOIN LIKES L ON L.FILM_ID = F.FILM_ID
-                JOIN MPA M ON M.MPA_ID = F.MPA_ID
-                GROUP BY F.FILM_ID
-                ORDER BY LIKE_COUNT DESC, F.FILM_ID
-                LIMIT :count;
-                """;
-        LinkedHashMap<Long, Film> films = jdbc.query(sqlQuery, Map.of("count", count), mapper).stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity(),
-                        (oldValue, newValue) -> oldValue,
-                        LinkedHashMap::new));
-
-        initializeGenresAndDirectors(films);
-
-        return films.values();
+    public boolean existsById(long id) {
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM FILMS WHERE FILM_ID = :filmId)";
+        return Boolean.TRUE.equals(jdbc.queryForObject(sqlQuery, Map.of("filmId", id), Boolean.class));
     }
 
     @Override
-    public Collection<Film> getPopularFilmsByYear(int year) {
+    public Collection<Film> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
         String sqlQuery = """
-                SELECT
-                    F.FILM_ID AS ID,
-                    F.NAME AS FILM_NAME,
-                    F.DESCRIPTION,
-                    F.RELEASE_DATE,
-                    F.DURATION,
-                    F.MPA_ID,
-                    M.NAME as MPA_NAME,
-                    COUNT(L.FILM_ID) AS LIKE_COUNT
+                SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME,
+                    F.LIKE_COUNT
                 FROM FILMS F
-                JOIN FILMS_GENRES FG ON F.FILM_ID = FG.FILM_ID
-                LEFT JOIN GENRES G ON FG.GENRE_ID = G.GENRE_ID
-                JOIN MPA M ON F.MPA_ID = M.MPA_ID
-                LEFT JOIN LIKES L ON L.FILM_ID = F.FILM_ID
-                WHERE YEAR(F.RELEASE_DATE) = :year
-                GROUP BY F.FILM_ID, FG.GENRE_ID
-                ORDER BY LIKE_COUNT DESC;
+                JOIN MPA M ON M.MPA_ID = F.MPA_ID
+                WHERE F.FILM_ID IN (:filmIds);
                 """;
-        LinkedHashMap<Long, Film> films = jdbc.query(sqlQuery, Map.of("year", year), mapper).stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity(),
-                        (oldValue, newValue) -> oldValue,
-                        LinkedHashMap::new));
+        Map<Long, Film> films = jdbc.query(sqlQuery, Map.of("filmIds", ids), mapper).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
 
         initializeGenresAndDirectors(films);
 
-        return films.values();
+        // сохраняем порядок, в котором были переданы идентификаторы
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     @Override
-    public Collection<Film> getPopularFilmsByGenre(int genreId) {
-        String sqlQuery = """
-                SELECT
-                    F.FILM_ID AS ID,
-                    F.NAME AS FILM_NAME,
-                    F.DESCRIPTION,
-                    F.RELEASE_DATE,
-                    F.DURATION,
-                    F.MPA_ID,
-                    M.NAME as MPA_NAME,
-                    COUNT(L.FILM_ID) AS LIKE_COUNT
-                FROM FILMS F
-                JOIN FILMS_GENRES FG ON F.FILM_ID = FG.FILM_ID
-                LEFT JOIN GENRES G ON FG.GENRE_ID = G.GENRE_ID
-                JOIN MPA M ON F.MPA_ID = M.MPA_ID
-                LEFT JOIN LIKES L ON L.FILM_ID = F.FILM_ID
-                WHERE G.GENRE_ID = :genreId
-                GROUP BY F.FILM_ID, FG.GENRE_ID
-                ORDER BY LIKE_COUNT DESC;
-                """;
-        LinkedHashMap<Long, Film> films = jdbc.query(sqlQuery, Map.of("genreId", genreId), mapper).stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity(),
-                        (oldValue, newValue) -> oldValue,
-                        LinkedHashMap::new));
-
-        initializeGenresAndDirectors(films);
-
-        return films.values();
+    public void delete(Long id) {
+        String deleteFilmQuery = "DELETE FROM FILMS WHERE FILM_ID = :filmId;";
+        jdbc.update(deleteFilmQuery, Map.of("filmId", id));
     }
 
     @Override
-    public Collection<Film> getPopularFilmsByYearAndGenre(int year, int genreId) {
+    public Collection<Film> getMostPopular(int count) {
         String sqlQuery = """
                 SELECT
-                    F.FILM_ID AS ID,
-                    F.NAME AS FILM_NAME,
+                    F.FILM_ID,
+                    F.NAME,
                     F.DESCRIPTION,
                     F.RELEASE_DATE,
                     F.DURATION,
                     F.MPA_ID,
                     M.NAME as MPA_NAME,
-                    COUNT(L.FILM_ID) AS LIKE_COUNT
+                    F.LIKE_COUNT
                 FROM FILMS F
-                JOIN FILMS_GENRES FG ON F.FILM_ID = FG.FILM_ID
-                LEFT JOIN GENRES G ON FG.GENRE_ID = G.GENRE_ID
-                JOIN MPA M ON F.MPA_ID = M.MPA_ID
-                LEFT JOIN LIKES L ON L.FILM_ID = F.FILM_ID
-                WHERE YEAR(F.RELEASE_DATE) = :year AND G.GENRE_ID = :genreId
-                GROUP BY F.FILM_ID, FG.GENRE_ID
-                ORDER BY LIKE_COUNT DESC;
+                JOIN MPA M ON M.MPA_ID = F.MPA_ID
+                ORDER BY F.LIKE_COUNT DESC, F.FILM_ID
+                LIMIT :count;
                 """;
-        LinkedHashMap<Long, Film> films = jdbc.query(sqlQuery, Map.of("year",year,"genreId", genreId), mapper).stream()
+        LinkedHashMap<Long, Film> films = jdbc.query(sqlQuery, Map.of("count", count), mapper).stream()
                 .collect(Collectors.toMap(Film::getId, Function.identity(),
                         (oldValue, newValue) -> oldValue,
                         LinkedHashMap::new));
@@ -434,109 +383,28 @@ public class JdbcFilmRepository extends BaseJdbcRepository<Film> implements Film
     }
 
     @Override
-    public Collection<Film> getCommonFilms(long userId, long friendId) {
-        String sqlQuery = """
-                SELECT
-                    F.FilM_ID,
-                    F.NAME,
-                    F.DESCRIPTION,
-                    F.RELEASE_DATE,
-                    F.DURATION,
-                    F.MPA_ID,
-                    M.NAME as MPA_NAME,
-                    COUNT(L_ALL.USER_ID) as LIKES
-                FROM FILMS F
-                JOIN LIKES L1 ON L1.FILM_ID = F.FILM_ID
-                JOIN LIKES L2 ON L2.FILM_ID = F.FILM_ID
-                LEFT JOIN LIKES L_ALL ON L_ALL.FILM_ID = F.FILM_ID
-                LEFT JOIN MPA M ON M.MPA_ID = F.MPA_ID
-                WHERE L1.USER_ID = :userId AND L2.USER_ID = :friendId
-                GROUP BY F.FILM_ID, M.MPA_ID
-                ORDER BY LIKES DESC, F.FILM_ID;
-                """;
-
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("friendId", friendId);
-
-        Map<Long, Film> filmMap = jdbc.query(sqlQuery, params, mapper).stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity()));
-        Map<Integer, Genre> genres = getIdsGenresMap();
-
-        jdbc.query("SELECT * FROM FILMS_GENRES WHERE FILM_ID IN (:filmIds);",
-                Map.of("filmIds", filmMap.keySet()),
-                (rs, rowNum) -> {
-                    Film film = filmMap.get(rs.getLong("FILM_ID"));
-                    Genre genre = genres.get(rs.getInt("GENRE_ID"));
-                    film.getGenres().add(genre);
-                    return film;
-                });
-
-        return filmMap.values();
-    }
-
-    @Override
-    public Collection<Film> search(String keyword, Set<String> searchParams) {
-        String searchQueryPattern = """
-                SELECT F.FILM_ID, F.NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION, F.MPA_ID, M.NAME as MPA_NAME
-                    FROM FILMS F
-                    JOIN MPA M ON M.MPA_ID = F.MPA_ID
-                    LEFT JOIN FILMS_DIRECTORS FD ON FD.FILM_ID = F.FILM_ID
-                    LEFT JOIN DIRECTORS D ON D.DIRECTOR_ID = FD.DIRECTOR_ID
-                    LEFT JOIN LIKES L ON L.FILM_ID = F.FILM_ID
-                    WHERE%s
-                    GROUP BY F.FILM_ID
-                    ORDER BY COUNT(L.USER_ID) DESC;""";
-
-        String whereCondition = "";
-        if (searchParams.contains("title")) {
-            whereCondition = " F.NAME ILIKE '%" + keyword + "%'";
-            if (searchParams.size() == 2) {
-                whereCondition += " OR";
-            }
+    public Map<Long, Integer> getTopLikeCounts(int count, Integer genreId, Integer year) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+        if (genreId != null) {
+            conditions.add("EXISTS (SELECT 1 FROM FILMS_GENRES FG "
+                    + "WHERE FG.FILM_ID = F.FILM_ID AND FG.GENRE_ID = :genreId)");
+            params.addValue("genreId", genreId);
         }
-        if (searchParams.contains("director")) {
-            whereCondition += " D.NAME ILIKE '%" + keyword + "%'";
+        if (year != null) {
+            conditions.add("YEAR(F.RELEASE_DATE) = :year");
+            params.addValue("year", year);
         }
-        String searchQuery = String.format(searchQueryPattern, whereCondition);
-
-        LinkedHashMap<Long, Film> films = jdbc.query(searchQuery, mapper).stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity(),
-                        (oldValue, newValue) -> oldValue,
-                        LinkedHashMap::new));
-
-        initializeGenresAndDirectors(films);
-        return films.values();
-    }
-
-    @Override
-    public Collection<Film> getFilmRecommendations(long userId) {
         String sqlQuery = """
-                SELECT f.*,
-                    m.NAME as MPA_NAME
-                FROM FILMS f
-                JOIN LIKES l ON f.FILM_ID = l.FILM_ID
-                LEFT JOIN MPA m ON m.MPA_ID = f.MPA_ID
-                WHERE l.USER_ID IN (
-                    SELECT l.USER_ID
-                    FROM LIKES l
-                    WHERE l.FILM_ID IN (
-                        SELECT l.FILM_ID
-                        FROM LIKES l
-                        WHERE l.USER_ID = :userId
-                    )
-                    AND l.USER_ID != :userId
-                )
-                AND f.FILM_ID NOT IN (
-                    SELECT l.FILM_ID
-                    FROM LIKES l
-                    WHERE l.USER_ID = :userId
-                )
-                """;
-        Map<Long, Film> films = jdbc.query(sqlQuery, Map.of("userId", userId), new FilmMapper()).stream()
-                .collect(Collectors.toMap(Film::getId, Function.identity()));
-        initializeGenresAndDirectors(films);
-
-        return films.values();
+                SELECT F.FILM_ID, F.LIKE_COUNT
+                FROM FILMS F
+                %s
+                ORDER BY F.LIKE_COUNT DESC, F.FILM_ID
+                LIMIT :count;
+                """.formatted(conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions));
+        Map<Long, Integer> likeCounts = new LinkedHashMap<>();
+        jdbc.query(sqlQuery, params, (RowCallbackHandler) rs ->
+                likeCounts.put(rs.getLong("FILM_ID"), rs.getInt("LIKE_COUNT")));
+        return likeCounts;
     }
 }
@@ -3,13 +3,10 @@ package ru.yandex.practicum.filmorate.repository.genre;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
 public interface GenreRepository {
     Optional<Genre> getById(int genreId);
 
     Collection<Genre> getAll();
-
-    int countMatchingGenres(List<Integer> genreId);
 }
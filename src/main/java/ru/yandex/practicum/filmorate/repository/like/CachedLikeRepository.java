@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.repository.like;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Лайк меняет счетчик в строке фильма, поэтому каждая запись лайков сбрасывает фильм из кэша фильмов.
+ */
+@Repository
+@Primary
+@RequiredArgsConstructor
+public class CachedLikeRepository implements LikeRepository {
+    private final JdbcLikeRepository delegate;
+    private final EntityCache<Film> filmCache;
+
+    @Override
+    public boolean like(long filmId, long userId) {
+        try {
+            return delegate.like(filmId, userId);
+        } finally {
+            filmCache.evict(filmId);
+        }
+    }
+
+    @Override
+    public boolean unlike(long filmId, long userId) {
+        try {
+            return delegate.unlike(filmId, userId);
+        } finally {
+            filmCache.evict(filmId);
+        }
+    }
+
+    @Override
+    public Collection<Long> getLikedFilmIds(long userId) {
+        return delegate.getLikedFilmIds(userId);
+    }
+
+    @Override
+    public void forEachLike(Consumer<Like> consumer) {
+        delegate.forEachLike(consumer);
+    }
+
+    @Override
+    public int recalculateLikeCounts() {
+        int repaired = delegate.recalculateLikeCounts();
+        if (repaired > 0) {
+            filmCache.evictAll();
+        }
+        return repaired;
+    }
+}
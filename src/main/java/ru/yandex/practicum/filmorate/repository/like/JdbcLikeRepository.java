@@ -1,12 +1,17 @@
 package ru.yandex.practicum.filmorate.repository.like;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.repository.BaseJdbcRepository;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Repository
 public class JdbcLikeRepository extends BaseJdbcRepository<Like> implements LikeRepository {
@@ -15,18 +20,60 @@ public class JdbcLikeRepository extends BaseJdbcRepository<Like> implements Like
     }
 
     @Override
-    public void like(long filmId, long userId) {
+    @Transactional
+    public boolean like(long filmId, long userId) {
         String query = """
-                MERGE INTO LIKES (FILM_ID, USER_ID)
-                KEY (FILM_ID, USER_ID)
-                VALUES (:filmId, :userId);
+                INSERT INTO LIKES (FILM_ID, USER_ID)
+                SELECT :filmId, :userId
+                WHERE NOT EXISTS (SELECT 1 FROM LIKES WHERE FILM_ID = :filmId AND USER_ID = :userId);
                 """;
-        jdbc.update(query, Map.of("filmId", filmId, "userId", userId));
+        try {
+            if (jdbc.update(query, Map.of("filmId", filmId, "userId", userId)) > 0) {
+                updateLikeCount(filmId, 1);
+                return true;
+            }
+        } catch (DuplicateKeyException ignored) {
+            // лайк уже поставлен параллельным запросом, счетчик увеличен там
+        }
+        return false;
     }
 
     @Override
-    public void unlike(long filmId, long userId) {
+    @Transactional
+    public boolean unlike(long filmId, long userId) {
         String query = "DELETE FROM LIKES WHERE FILM_ID = :filmId AND USER_ID = :userId;";
-        jdbc.update(query, Map.of("filmId", filmId, "userId", userId));
+        if (jdbc.update(query, Map.of("filmId", filmId, "userId", userId)) > 0) {
+            updateLikeCount(filmId, -1);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Collection<Long> getLikedFilmIds(long userId) {
+        String query = "SELECT FILM_ID FROM LIKES WHERE USER_ID = :userId;";
+        return jdbc.queryForList(query, Map.of("userId", userId), Long.class);
+    }
+
+    @Override
+    public void forEachLike(Consumer<Like> consumer) {
+        String query = "SELECT FILM_ID, USER_ID FROM LIKES;";
+        jdbc.query(query, Map.of(), (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    @Transactional
+    public int recalculateLikeCounts() {
+        String query = """
+                UPDATE FILMS F
+                SET LIKE_COUNT = (SELECT COUNT(*) FROM LIKES L WHERE L.FILM_ID = F.FILM_ID)
+                WHERE LIKE_COUNT <> (SELECT COUNT(*) FROM LIKES L WHERE L.FILM_ID = F.FILM_ID);
+                """;
+        return jdbc.update(query, Map.of());
+    }
+
+    private void updateLikeCount(long filmId, int delta) {
+        String query = "UPDATE FILMS SET LIKE_COUNT = LIKE_COUNT + :delta WHERE FILM_ID = :filmId;";
+        jdbc.update(query, Map.of("filmId", filmId, "delta", delta));
     }
 }
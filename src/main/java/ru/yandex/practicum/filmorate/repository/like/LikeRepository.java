@@ -1,8 +1,19 @@
 package ru.yandex.practicum.filmorate.repository.like;
 
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
 public interface LikeRepository {
 
-    void like(long filmId, long userId);
+    boolean like(long filmId, long userId);
+
+    boolean unlike(long filmId, long userId);
+
+    Collection<Long> getLikedFilmIds(long userId);
+
+    void forEachLike(Consumer<Like> consumer);
 
-    void unlike(long filmId, long userId);
+    int recalculateLikeCounts();
 }
@@ -13,6 +13,7 @@ import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.repository.BaseJdbcRepository;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -89,6 +90,12 @@ public class JdbcReviewRepository extends BaseJdbcRepository<Review> implements
         }
     }
 
+    @Override
+    public boolean existsById(long id) {
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM REVIEWS WHERE REVIEW_ID = :reviewId)";
+        return Boolean.TRUE.equals(jdbc.queryForObject(sqlQuery, Map.of("reviewId", id), Boolean.class));
+    }
+
     @Override
     public Collection<Review> getReviewsByFilmId(Long filmId, int count) {
         final String sql = """
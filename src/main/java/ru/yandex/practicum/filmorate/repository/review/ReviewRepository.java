@@ -14,6 +14,8 @@ public interface ReviewRepository {
 
     Optional<Review> getById(long id);
 
+    boolean existsById(long id);
+
     Collection<Review> getReviewsByFilmId(Long filmId, int count);
 
     Collection<Review> getAllReviews(int count);
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.repository.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.cache.EntityCache;
+import ru.yandex.practicum.filmorate.cache.IdBitmap;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.like.LikeRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Пользователи по идентификатору читаются через кэш, остальные запросы передаются в базу без изменений.
+ * Проверки существования при включенном битовом множестве идентификаторов не обращаются к базе.
+ * Из кэша отдаются копии, чтобы изменение полученного пользователя не портило кэш.
+ */
+@Repository
+@Primary
+@RequiredArgsConstructor
+@Slf4j
+public class CachedUserRepository implements UserRepository {
+    private final JdbcUserRepository delegate;
+    private final EntityCache<User> userCache;
+    private final EntityCache<Film> filmCache;
+    private final LikeRepository likeRepository;
+    private final IdBitmap userIds = new IdBitmap();
+
+    @Value("${filmorate.repository.id-bitmap.enabled}")
+    private boolean idBitmapEnabled;
+
+    @PostConstruct
+    public void init() {
+        if (idBitmapEnabled) {
+            userIds.reset(delegate.getAllIds());
+            log.info("ID-BITMAP. Загружены идентификаторы: {}", userIds.size());
+        }
+    }
+
+    @Override
+    public User create(User user) {
+        User createdUser = delegate.create(user);
+        userIds.add(createdUser.getId());
+        return createdUser;
+    }
+
+    @Override
+    public User update(User user) {
+        try {
+            return delegate.update(user);
+        } finally {
+            userCache.evict(user.getId());
+        }
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public Collection<User> getAll(long afterId, int limit) {
+        return delegate.getAll(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(int chunkSize, Consumer<Collection<User>> chunkConsumer) {
+        delegate.streamAll(chunkSize, chunkConsumer);
+    }
+
+    @Override
+    public Optional<User> getById(Long id) {
+        return userCache.get(id, delegate::getById).map(CachedUserRepository::copy);
+    }
+
+    @Override
+    public Collection<User> getByIds(Collection<Long> ids) {
+        Map<Long, User> users = userCache.getAll(ids, missingIds -> delegate.getByIds(missingIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity())));
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(CachedUserRepository::copy)
+                .toList();
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return idBitmapEnabled ? userIds.contains(id) : delegate.existsById(id);
+    }
+
+    @Override
+    public boolean existAll(Collection<Long> ids) {
+        return idBitmapEnabled ? userIds.containsAll(ids) : delegate.existAll(ids);
+    }
+
+    @Override
+    public void delete(long userId) {
+        // удаление пользователя уменьшает счетчики лайков у понравившихся ему фильмов
+        Collection<Long> likedFilmIds = likeRepository.getLikedFilmIds(userId);
+        try {
+            delegate.delete(userId);
+            userIds.remove(userId);
+        } finally {
+            userCache.evict(userId);
+            filmCache.evictAll(likedFilmIds);
+        }
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        delegate.addFriend(userId, friendId);
+    }
+
+    @Override
+    public void deleteFriend(long userId, long friendId) {
+        delegate.deleteFriend(userId, friendId);
+    }
+
+    @Override
+    public Collection<User> getFriends(long userId) {
+        return delegate.getFriends(userId);
+    }
+
+    @Override
+    public Collection<User> getFriends(long userId, long afterId, int limit) {
+        return delegate.getFriends(userId, afterId, limit);
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(long userId, long otherId) {
+        return delegate.getCommonFriends(userId, otherId);
+    }
+
+    @Override
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        delegate.forEachFriendship(consumer);
+    }
+
+    @Override
+    public Collection<Event> getFeed(long userId, long afterId, int limit) {
+        return delegate.getFeed(userId, afterId, limit);
+    }
+
+    @Override
+    public Collection<Event> getFeedBefore(long userId, long beforeId, int limit) {
+        return delegate.getFeedBefore(userId, beforeId, limit);
+    }
+
+    @Override
+    public Map<Long, List<Event>> getFeedsBefore(Collection<Long> userIds, long beforeId, int limit) {
+        return delegate.getFeedsBefore(userIds, beforeId, limit);
+    }
+
+    private static User copy(User user) {
+        return User.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .login(user.getLogin())
+                .name(user.getName())
+                .birthday(user.getBirthday())
+                .build();
+    }
+}
@@ -1,26 +1,40 @@
 package ru.yandex.practicum.filmorate.repository.user;
 
-import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.SaveDataException;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.BaseJdbcRepository;
 import ru.yandex.practicum.filmorate.repository.feed.EventMapper;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
-@Primary
 public class JdbcUserRepository extends BaseJdbcRepository<User> implements UserRepository {
+    private static final int FEED_CHUNK_SIZE = 100;
+
     public JdbcUserRepository(NamedParameterJdbcOperations jdbc, RowMapper<User> mapper) {
         super(jdbc, mapper);
     }
@@ -76,6 +90,34 @@ public class JdbcUserRepository extends BaseJdbcRepository<User> implements User
         return jdbc.query(sqlQuery, mapper);
     }
 
+    @Override
+    public Collection<User> getAll(long afterId, int limit) {
+        String sqlQuery = """
+                SELECT *
+                FROM USERS
+                WHERE USER_ID > :afterId
+                ORDER BY USER_ID
+                LIMIT :limit;
+                """;
+        return jdbc.query(sqlQuery, Map.of("afterId", afterId, "limit", limit), mapper);
+    }
+
+    @Override
+    public void streamAll(int chunkSize, Consumer<Collection<User>> chunkConsumer) {
+        long afterId = 0;
+        while (true) {
+            Collection<User> chunk = getAll(afterId, chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            chunkConsumer.accept(chunk);
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            afterId = chunk.stream().reduce((first, second) -> second).orElseThrow().getId();
+        }
+    }
+
     @Override
     public Optional<User> getById(Long id) {
         try {
@@ -92,7 +134,61 @@ public class JdbcUserRepository extends BaseJdbcRepository<User> implements User
     }
 
     @Override
+    public Collection<User> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String sqlQuery = """
+                SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
+                FROM USERS
+                WHERE USER_ID IN (:userIds);
+                """;
+        Map<Long, User> users = jdbc.query(sqlQuery, Map.of("userIds", ids), mapper).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        // сохраняем порядок, в котором были переданы идентификаторы
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Идентификаторы всех записей, нужны для начального заполнения
+     * {@link ru.yandex.practicum.filmorate.cache.IdBitmap}.
+     */
+    public Collection<Long> getAllIds() {
+        return jdbc.getJdbcOperations().queryForList("SELECT USER_ID FROM USERS", Long.class);
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        String sqlQuery = "SELECT EXISTS (SELECT 1 FROM USERS WHERE USER_ID = :userId)";
+        return Boolean.TRUE.equals(jdbc.queryForObject(sqlQuery, Map.of("userId", id), Boolean.class));
+    }
+
+    @Override
+    public boolean existAll(Collection<Long> ids) {
+        Set<Long> distinctIds = Set.copyOf(ids);
+        if (distinctIds.isEmpty()) {
+            return true;
+        }
+        String sqlQuery = "SELECT COUNT(*) FROM USERS WHERE USER_ID IN (:ids)";
+        Integer found = jdbc.queryForObject(sqlQuery, Map.of("ids", distinctIds), Integer.class);
+        return found != null && found == distinctIds.size();
+    }
+
+    @Override
+    @Transactional
     public void delete(long userId) {
+        // лайки пользователя удалятся каскадно, поэтому счетчики фильмов уменьшаем заранее
+        String decrementLikeCountsQuery = """
+                UPDATE FILMS
+                SET LIKE_COUNT = LIKE_COUNT - 1
+                WHERE FILM_ID IN (SELECT FILM_ID FROM LIKES WHERE USER_ID = :userId);
+                """;
+        jdbc.update(decrementLikeCountsQuery, Map.of("userId", userId));
+
         String deleteUserQuery = "DELETE FROM USERS WHERE USER_ID = :userId;";
         jdbc.update(deleteUserQuery, Map.of("userId", userId));
     }
@@ -129,22 +225,95 @@ public class JdbcUserRepository extends BaseJdbcRepository<User> implements User
         return jdbc.query(sqlQuery, Map.of("userId", userId), mapper);
     }
 
+    @Override
+    public Collection<User> getFriends(long userId, long afterId, int limit) {
+        String sqlQuery = """
+                SELECT U.*
+                FROM FRIENDSHIP F
+                JOIN USERS U ON U.USER_ID = F.FRIEND_ID
+                WHERE F.USER_ID = :userId AND F.FRIEND_ID > :afterId
+                ORDER BY F.FRIEND_ID
+                LIMIT :limit;
+                """;
+        return jdbc.query(sqlQuery, Map.of("userId", userId, "afterId", afterId, "limit", limit), mapper);
+    }
+
     @Override
     public Collection<User> getCommonFriends(long userId, long otherId) {
-        Collection<User> userFriends = getFriends(userId);
-        Collection<User> friendFriends = getFriends(otherId);
+        // пересекаются только идентификаторы по первичному ключу FRIENDSHIP, из USERS читаются лишь общие друзья;
+        // соединение FRIENDSHIP с самой собой H2 выполняет через индекс FRIEND_ID и обходит заметно больше строк
+        String sqlQuery = """
+                SELECT FRIEND_ID FROM FRIENDSHIP WHERE USER_ID = :userId
+                INTERSECT
+                SELECT FRIEND_ID FROM FRIENDSHIP WHERE USER_ID = :otherId
+                ORDER BY FRIEND_ID;
+                """;
+        List<Long> commonIds = jdbc.queryForList(sqlQuery, Map.of("userId", userId, "otherId", otherId), Long.class);
+        return getByIds(commonIds);
+    }
 
-        userFriends.retainAll(friendFriends);
-        return userFriends;
+    @Override
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        String query = "SELECT USER_ID, FRIEND_ID FROM FRIENDSHIP;";
+        jdbc.query(query, Map.of(), (RowCallbackHandler) rs -> consumer.accept(rs.getLong("USER_ID"),
+                rs.getLong("FRIEND_ID")));
     }
 
     @Override
-    public Collection<Event> getFeed(long userId) {
+    public Collection<Event> getFeed(long userId, long afterId, int limit) {
         String sqlQuery = """
                 SELECT *
                 FROM USER_EVENTS
-                WHERE USER_ID = :userId
+                WHERE USER_ID = :userId AND EVENT_ID > :afterId
+                ORDER BY USER_ID, EVENT_ID
+                LIMIT :limit;
                 """;
-        return jdbc.query(sqlQuery, Map.of("userId", userId), new EventMapper());
+        return jdbc.query(sqlQuery, Map.of("userId", userId, "afterId", afterId, "limit", limit), new EventMapper());
+    }
+
+    @Override
+    public Collection<Event> getFeedBefore(long userId, long beforeId, int limit) {
+        // H2 не читает индекс в обратном порядке, поэтому для этого запроса есть индекс (USER_ID, EVENT_ID DESC);
+        // USER_ID в ORDER BY нужен, чтобы H2 взял порядок из индекса и остановился на limit строк
+        String sqlQuery = """
+                SELECT *
+                FROM USER_EVENTS
+                WHERE USER_ID = :userId AND EVENT_ID < :beforeId
+                ORDER BY USER_ID, EVENT_ID DESC
+                LIMIT :limit;
+                """;
+        return jdbc.query(sqlQuery, Map.of("userId", userId, "beforeId", beforeId, "limit", limit),
+                new EventMapper());
+    }
+
+    @Override
+    public Map<Long, List<Event>> getFeedsBefore(Collection<Long> userIds, long beforeId, int limit) {
+        // IN-список H2 выполняет одним проходом по всем событиям авторов с сортировкой; подзапрос на автора
+        // читает индекс (USER_ID, EVENT_ID DESC) в его порядке и останавливается на limit строк
+        String subQuery = """
+                (SELECT *
+                FROM USER_EVENTS
+                WHERE USER_ID = :userId%1$d AND EVENT_ID < :beforeId
+                ORDER BY USER_ID, EVENT_ID DESC
+                LIMIT :limit)
+                """;
+        List<Long> ids = List.copyOf(userIds);
+        Map<Long, List<Event>> feeds = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += FEED_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + FEED_CHUNK_SIZE, ids.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("beforeId", beforeId)
+                    .addValue("limit", limit);
+            StringJoiner sqlQuery = new StringJoiner("UNION ALL\n");
+            for (int i = 0; i < chunk.size(); i++) {
+                sqlQuery.add(subQuery.formatted(i));
+                params.addValue("userId" + i, chunk.get(i));
+            }
+            jdbc.query(sqlQuery.toString(), params, new EventMapper()).forEach(event ->
+                    feeds.computeIfAbsent(event.getUserId(), key -> new ArrayList<>()).add(event));
+        }
+        // порядок строк между частями UNION ALL не гарантирован, внутри ленты автора он восстанавливается
+        feeds.values().forEach(feed -> feed.sort(Comparator.comparingLong(Event::getEventId).reversed()));
+        return feeds;
     }
 }
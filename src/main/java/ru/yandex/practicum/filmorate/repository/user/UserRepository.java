@@ -4,7 +4,11 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.Event;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface UserRepository {
     User create(User user);
@@ -13,8 +17,18 @@ public interface UserRepository {
 
     Collection<User> getAll();
 
+    Collection<User> getAll(long afterId, int limit);
+
+    void streamAll(int chunkSize, Consumer<Collection<User>> chunkConsumer);
+
     Optional<User> getById(Long id);
 
+    Collection<User> getByIds(Collection<Long> ids);
+
+    boolean existsById(long id);
+
+    boolean existAll(Collection<Long> ids);
+
     void delete(long userId);
 
     void addFriend(long userId, long friendId);
@@ -23,8 +37,20 @@ public interface UserRepository {
 
     Collection<User> getFriends(long userId);
 
+    Collection<User> getFriends(long userId, long afterId, int limit);
+
     Collection<User> getCommonFriends(long userId, long otherId);
 
+    void forEachFriendship(BiConsumer<Long, Long> consumer);
+
+
+    Collection<Event> getFeed(long userId, long afterId, int limit);
+
+    Collection<Event> getFeedBefore(long userId, long beforeId, int limit);
 
-    Collection<Event> getFeed(long userId);
+    /**
+     * @return для каждого перечисленного пользователя, у которого есть такие события, до {@code limit}
+     * его событий с идентификаторами меньше {@code beforeId}, от новых к старым
+     */
+    Map<Long, List<Event>> getFeedsBefore(Collection<Long> userIds, long beforeId, int limit);
 }
@@ -7,6 +7,8 @@ import java.util.Collection;
 public interface DirectorService {
     Collection<Director> getAll();
 
+    Collection<Director> getAll(int afterId, int limit);
+
     Director getById(int directorId);
 
     Director create(Director director);
@@ -3,26 +3,36 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.CatalogListener;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.repository.director.DirectorRepository;
 
 import java.util.Collection;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DirectorServiceImpl implements DirectorService {
     private final DirectorRepository directorRepository;
+    private final ReferenceDataCache referenceData;
+    private final List<CatalogListener> catalogListeners;
 
     @Override
     public Collection<Director> getAll() {
-        return directorRepository.getAll();
+        return referenceData.getDirectors();
+    }
+
+    @Override
+    public Collection<Director> getAll(int afterId, int limit) {
+        return directorRepository.getAll(afterId, limit);
     }
 
     @Override
     public Director getById(int directorId) {
-        return directorRepository.getById(directorId)
+        return referenceData.getDirector(directorId)
                 .orElseThrow(() -> {
                     log.debug("GET DIRECTOR By ID {}. Режиссер с айди {} не найден", directorId, directorId);
                     return new NotFoundException("Режиссер с id=" + directorId + " не существует");
@@ -31,22 +41,30 @@ public class DirectorServiceImpl implements DirectorService {
 
     @Override
     public Director create(Director director) {
-        return directorRepository.create(director);
+        Director createdDirector = directorRepository.create(director);
+        referenceData.putDirector(createdDirector);
+        catalogListeners.forEach(listener -> listener.onDirectorSaved(createdDirector));
+        return createdDirector;
     }
 
     @Override
     public Director update(Director director) {
-        directorRepository.getById(director.getId())
+        referenceData.getDirector(director.getId())
                 .orElseThrow(() -> {
                     log.debug("UPDATE DIRECTOR {}. Режиссер с айди {} не найден", director.getId(), director.getId());
                     return new NotFoundException("Режиссер с id=" + director.getId() + " не существует");
                 });
 
-        return directorRepository.update(director);
+        Director updatedDirector = directorRepository.update(director);
+        referenceData.putDirector(updatedDirector);
+        catalogListeners.forEach(listener -> listener.onDirectorSaved(updatedDirector));
+        return updatedDirector;
     }
 
     @Override
     public void removeById(int directorId) {
         directorRepository.removeById(directorId);
+        referenceData.removeDirector(directorId);
+        catalogListeners.forEach(listener -> listener.onDirectorDeleted(directorId));
     }
 }
@@ -0,0 +1,372 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.repository.feed.FeedListener;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылает записанные события ленты подписчикам по Server-Sent Events. Открытое соединение не занимает
+ * поток: SseEmitter работает в асинхронном режиме сервлета. Отправляет пул из {@code sender-threads} потоков,
+ * подписчику достается не больше одного потока за раз. Виртуальные потоки не подходят: запись Tomcat ждет
+ * сокет внутри synchronized и занимает поток-носитель. Подписчик, запись которому идет дольше
+ * {@code write-timeout-ms}, отключается, а зависшую запись и занятый ею поток освобождает таймаут записи
+ * контейнера ({@code server.tomcat.connection-timeout}). Если в очереди пула уже {@code sender-queue}
+ * подписчиков, ждущих отправки, новый не ставится в очередь, а отключается.
+ * У каждого подписчика своя очередь на {@code buffer-size} событий; если клиент не успевает их забирать,
+ * отбрасываются самые старые. Пропущенное клиент получает, переподключившись с заголовком Last-Event-ID.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FeedBroadcaster implements FeedListener {
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private ThreadPoolExecutor senders;
+    // собственный планировщик: пульс и проверка зависших отправок не занимают общий поток @Scheduled
+    private ScheduledExecutorService scheduler;
+    private Counter dropped;
+    private Counter timedOut;
+    private Counter rejected;
+
+    @Value("${filmorate.feed-stream.buffer-size}")
+    private int bufferSize;
+
+    @Value("${filmorate.feed-stream.max-replay}")
+    private int maxReplay;
+
+    @Value("${filmorate.feed-stream.timeout-ms}")
+    private long timeoutMs;
+
+    @Value("${filmorate.feed-stream.heartbeat-ms}")
+    private long heartbeatMs;
+
+    @Value("${filmorate.feed-stream.write-timeout-ms}")
+    private long writeTimeoutMs;
+
+    @Value("${filmorate.feed-stream.sender-threads}")
+    private int senderThreads;
+
+    @Value("${filmorate.feed-stream.sender-queue}")
+    private int senderQueue;
+
+    @PostConstruct
+    public void init() {
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(senderQueue),
+                Thread.ofPlatform().name("feed-stream-sender-", 0).daemon().factory());
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("feed-stream-scheduler").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        long checkMs = Math.max(1, writeTimeoutMs / 2);
+        scheduler.scheduleWithFixedDelay(this::closeStalled, checkMs, checkMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("filmorate.feed.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+        dropped = Counter.builder("filmorate.feed.stream.dropped").register(meterRegistry);
+        timedOut = Counter.builder("filmorate.feed.stream.write.timeouts").register(meterRegistry);
+        rejected = Counter.builder("filmorate.feed.stream.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Подписывает на новые события ленты пользователя. Если указан {@code lastEventId}, сначала
+     * отправляются пропущенные после него события, но не больше {@code max-replay} последних;
+     * более старые можно дочитать через {@code /users/{id}/feed}.
+     */
+    public SseEmitter subscribe(long userId, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        // подписчик регистрируется до чтения пропущенного: события, записанные между чтением и
+        // регистрацией, иначе потерялись бы; повторы отсекаются по идентификатору
+        register(subscriber);
+        List<Event> missed;
+        try {
+            missed = lastEventId == null ? replayNothing(userId) : missedSince(userId, lastEventId);
+        } catch (RuntimeException e) {
+            unregister(subscriber);
+            throw e;
+        }
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(e -> unregister(subscriber));
+        subscriber.dispatch(() -> subscriber.replay(missed));
+        return emitter;
+    }
+
+    @Override
+    public void onEventsSaved(List<Event> events) {
+        for (Event event : events) {
+            for (Subscriber subscriber : subscribers.getOrDefault(event.getUserId(), Set.of())) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(Subscriber::close));
+        senders.shutdown();
+    }
+
+    /**
+     * Комментарий раз в интервал не дает прокси закрыть молчащее соединение и выявляет отключившихся клиентов.
+     */
+    private void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::requestHeartbeat));
+    }
+
+    private void closeStalled() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            long started = subscriber.sendStarted;
+            if (started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs)) {
+                log.info("FEED-STREAM. Подписчик на ленту пользователя {} не принимает данные дольше {} мс, "
+                        + "соединение закрыто", subscriber.userId, writeTimeoutMs);
+                timedOut.increment();
+                subscriber.close();
+            }
+        }));
+    }
+
+    private List<Event> replayNothing(long userId) {
+        userService.getById(userId);
+        return List.of();
+    }
+
+    private List<Event> missedSince(long userId, long lastEventId) {
+        List<Event> missed = new ArrayList<>(userService.getFeedBefore(userId, Long.MAX_VALUE, maxReplay));
+        missed.removeIf(event -> event.getEventId() <= lastEventId);
+        Collections.reverse(missed);
+        return missed;
+    }
+
+    private void register(Subscriber subscriber) {
+        subscribers.computeIfAbsent(subscriber.userId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+    }
+
+    private void unregister(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (key, set) -> {
+            if (set.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Очередь событий одного соединения. Отправляет не больше одного потока за раз,
+     * поэтому события уходят по порядку; пока идет отправка пропущенного, новые только копятся.
+     */
+    private final class Subscriber {
+        private final long userId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Event> pending = new ArrayDeque<>();
+        private boolean scheduled = true;
+        private boolean heartbeatDue;
+        private boolean closed;
+        private long lastSentId;
+        // время начала текущей отправки по System.nanoTime(), 0 - отправки нет
+        private volatile long sendStarted;
+
+        Subscriber(long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(Event event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (pending.size() == bufferSize) {
+                    pending.pollFirst();
+                    dropped.increment();
+                }
+                pending.addLast(event);
+                if (!schedule()) {
+                    return;
+                }
+            }
+            startSender();
+        }
+
+        void requestHeartbeat() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                heartbeatDue = true;
+                if (!schedule()) {
+                    return;
+                }
+            }
+            startSender();
+        }
+
+        void replay(List<Event> missed) {
+            for (Event event : missed) {
+                if (isClosed()) {
+                    break;
+                }
+                if (!send(SseEmitter.event()
+                        .id(String.valueOf(event.getEventId()))
+                        .name("feed")
+                        .data(event, MediaType.APPLICATION_JSON))) {
+                    return;
+                }
+                lastSentId = event.getEventId();
+            }
+            drain();
+        }
+
+        /**
+         * Перестает копить события и закрывает соединение. SseEmitter завершается только после текущей
+         * отправки, поэтому, если отправитель запущен, соединение закрывает он сам, а вызывающий поток не ждет.
+         */
+        void close() {
+            unregister(this);
+            if (detach()) {
+                complete();
+            }
+        }
+
+        /**
+         * Запускает задачу отправителя. Если очередь пула заполнена, подписчик отключается сразу: ждать места
+         * нельзя, вызывающий поток раскладывает события всем подписчикам.
+         */
+        void dispatch(Runnable task) {
+            try {
+                senders.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (!senders.isShutdown()) {
+                    log.warn("FEED-STREAM. Очередь отправки заполнена, подписчик на ленту пользователя {} отключен",
+                            userId);
+                    rejected.increment();
+                }
+                unregister(this);
+                detach();
+                // отправитель не запущен, поэтому завершение не ждет отправки
+                complete();
+            }
+        }
+
+        /**
+         * Вызывается под монитором подписчика.
+         *
+         * @return {@code true}, если отправителя нужно запустить
+         */
+        private boolean schedule() {
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        /**
+         * @return {@code true}, если отправитель не запущен и соединение должен закрыть вызывающий поток
+         */
+        private synchronized boolean detach() {
+            closed = true;
+            pending.clear();
+            return schedule();
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        private void complete() {
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                log.debug("FEED-STREAM. Соединение подписчика на ленту пользователя {} уже закрыто: {}",
+                        userId, e.getMessage());
+            }
+        }
+
+        private void startSender() {
+            dispatch(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                boolean heartbeat;
+                synchronized (this) {
+                    if (closed) {
+                        break;
+                    }
+                    event = pending.pollFirst();
+                    heartbeat = event == null && heartbeatDue;
+                    heartbeatDue = heartbeatDue && !heartbeat;
+                    if (event == null && !heartbeat) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                if (heartbeat) {
+                    if (!send(SseEmitter.event().comment("heartbeat"))) {
+                        return;
+                    }
+                } else if (event.getEventId() > lastSentId) {
+                    if (!send(SseEmitter.event()
+                            .id(String.valueOf(event.getEventId()))
+                            .name("feed")
+                            .data(event, MediaType.APPLICATION_JSON))) {
+                        return;
+                    }
+                    lastSentId = event.getEventId();
+                }
+            }
+            complete();
+        }
+
+        private boolean send(SseEmitter.SseEventBuilder message) {
+            sendStarted = System.nanoTime();
+            try {
+                emitter.send(message);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // клиент отключился или соединение закрыто по таймауту записи: дальше события для него не копятся
+                log.debug("FEED-STREAM. Подписчик на ленту пользователя {} отключился: {}", userId, e.getMessage());
+                unregister(this);
+                synchronized (this) {
+                    closed = true;
+                    pending.clear();
+                }
+                return false;
+            } finally {
+                sendStarted = 0;
+            }
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package ru.yandex.practicum.filmorate.service;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmService {
     Collection<Film> getAll();
 
+    Collection<Film> getAll(long afterId, int limit);
+
+    void streamAll(Consumer<Collection<Film>> chunkConsumer);
+
     Film create(Film film);
 
     Film update(Film film);
@@ -25,5 +32,11 @@ public interface FilmService {
 
     Collection<Film> getCommonFilms(long userId, long friendId);
 
-    Collection<Film> search(String keyword, String params);
+    Collection<Film> getCommonFilms(Collection<Long> userIds);
+
+    Collection<Film> search(String keyword, String params, boolean fuzzy, Double popularityWeight);
+
+    List<Suggestion> autocomplete(String prefix, int limit);
+
+    Collection<Film> getSimilar(long filmId, int count);
 }
\ No newline at end of file
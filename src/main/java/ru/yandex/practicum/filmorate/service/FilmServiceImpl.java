@@ -2,25 +2,36 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.CatalogListener;
+import ru.yandex.practicum.filmorate.index.FilmAutocompleteIndex;
+import ru.yandex.practicum.filmorate.index.FilmDescriptionIndex;
+import ru.yandex.practicum.filmorate.index.FilmFuzzyIndex;
+import ru.yandex.practicum.filmorate.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.index.LikeMatrix;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Operation;
-import ru.yandex.practicum.filmorate.repository.director.DirectorRepository;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.repository.feed.FeedRepository;
 import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
-import ru.yandex.practicum.filmorate.repository.genre.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.like.LikeRepository;
-import ru.yandex.practicum.filmorate.repository.mpa.MpaRepository;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,20 +40,42 @@ import java.util.stream.Collectors;
 public class FilmServiceImpl implements FilmService {
     private final FilmRepository filmRepository;
     private final UserRepository userRepository;
-    private final MpaRepository mpaRepository;
-    private final GenreRepository genreRepository;
     private final LikeRepository likeRepository;
-    private final DirectorRepository directorRepository;
+    private final ReferenceDataCache referenceData;
     private final FeedRepository feedRepository;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmAutocompleteIndex autocompleteIndex;
+    private final FilmFuzzyIndex fuzzyIndex;
+    private final FilmDescriptionIndex descriptionIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final LikeMatrix likeMatrix;
+    private final List<CatalogListener> catalogListeners;
+
+    @Value("${filmorate.streaming.chunk-size}")
+    private int streamChunkSize;
+
+    @Value("${filmorate.search.description.popularity-weight}")
+    private double defaultPopularityWeight;
 
     @Override
     public Collection<Film> getAll() {
         return filmRepository.getAll();
     }
 
+    @Override
+    public Collection<Film> getAll(long afterId, int limit) {
+        return filmRepository.getAll(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Collection<Film>> chunkConsumer) {
+        filmRepository.streamAll(streamChunkSize, chunkConsumer);
+    }
+
     @Override
     public Collection<Film> getByDirector(int directorId, String sortBy) {
-        directorRepository.getById(directorId)
+        referenceData.getDirector(directorId)
                 .orElseThrow(() -> {
                     log.debug("GET DIRECTOR By ID {}. Режиссер с айди {} не найден", directorId, directorId);
                     return new NotFoundException("Режиссер с id=" + directorId + " не существует");
@@ -65,7 +98,9 @@ public class FilmServiceImpl implements FilmService {
         checkFilmGenres(film);
         checkFilmDirectors(film);
 
-        return filmRepository.create(film);
+        Film createdFilm = filmRepository.create(film);
+        catalogListeners.forEach(listener -> listener.onFilmSaved(createdFilm));
+        return createdFilm;
     }
 
     @Override
@@ -75,12 +110,15 @@ public class FilmServiceImpl implements FilmService {
         checkFilmGenres(film);
         checkFilmDirectors(film);
 
-        return filmRepository.update(film);
+        Film updatedFilm = filmRepository.update(film);
+        catalogListeners.forEach(listener -> listener.onFilmSaved(updatedFilm));
+        return updatedFilm;
     }
 
     @Override
     public void delete(long filmId) {
         filmRepository.delete(filmId);
+        catalogListeners.forEach(listener -> listener.onFilmDeleted(filmId));
     }
 
     @Override
@@ -88,7 +126,9 @@ public class FilmServiceImpl implements FilmService {
         checkUserExist(userId, "LIKE-FILM");
         checkFilmExist(filmId, "LIKE-FILM");
 
-        likeRepository.like(filmId, userId);
+        if (likeRepository.like(filmId, userId)) {
+            catalogListeners.forEach(listener -> listener.onLikeAdded(filmId, userId));
+        }
         feedRepository.saveEvent(userId, Operation.ADD, EventType.LIKE, filmId);
     }
 
@@ -97,26 +137,20 @@ public class FilmServiceImpl implements FilmService {
         checkUserExist(userId, "UNLIKE-FILM");
         checkFilmExist(filmId, "UNLIKE-FILM");
 
-        likeRepository.unlike(filmId, userId);
+        if (likeRepository.unlike(filmId, userId)) {
+            catalogListeners.forEach(listener -> listener.onLikeRemoved(filmId, userId));
+        }
         feedRepository.saveEvent(userId, Operation.REMOVE, EventType.LIKE, filmId);
     }
 
     public Collection<Film> getMostPopular(Integer count, Integer genreId, Integer year) {
-        Collection<Film> films;
-        if (genreId == null && year == null) {
-            films = filmRepository.getMostPopular(count);
-        } else if (genreId == null) {
-            films = filmRepository.getPopularFilmsByYear(year);
-        } else if (year == null) {
-            genreRepository.getById(genreId).orElseThrow(() -> {
+        if (genreId != null && year == null) {
+            referenceData.getGenre(genreId).orElseThrow(() -> {
                 log.info("GET-MOST-POPULAR. Жанр с id={} не найден", genreId);
                 return new NotFoundException("Жанр с id=" + genreId + " не существует");
             });
-            films = filmRepository.getPopularFilmsByGenre(genreId);
-        } else {
-            films = filmRepository.getPopularFilmsByYearAndGenre(year, genreId);
         }
-        return films;
+        return filmRepository.getByIds(popularityIndex.getMostPopular(count, genreId, year));
     }
 
     @Override
@@ -124,18 +158,63 @@ public class FilmServiceImpl implements FilmService {
         checkUserExist(userId, "COMMON-FILM-USER");
         checkUserExist(friendId, "COMMON-FILM-FRIEND");
 
-        return filmRepository.getCommonFilms(userId, friendId);
+        return commonFilms(List.of(userId, friendId));
     }
 
     @Override
-    public Collection<Film> search(String keyword, String params) {
-        Set<String> searchParams = Arrays.stream(params.split(",")).collect(Collectors.toSet());
-        return filmRepository.search(keyword.toLowerCase(), searchParams);
+    public Collection<Film> getCommonFilms(Collection<Long> userIds) {
+        // обычно все пользователи существуют, и хватает одной проверки
+        if (!userRepository.existAll(userIds)) {
+            userIds.forEach(userId -> checkUserExist(userId, "COMMON-FILM-USERS"));
+        }
+        return commonFilms(userIds);
+    }
+
+    @Override
+    public Collection<Film> search(String keyword, String params, boolean fuzzy, Double popularityWeight) {
+        Set<String> searchParams = Arrays.stream(params.split(","))
+                .map(String::trim)
+                .collect(Collectors.toSet());
+        boolean byTitle = searchParams.contains("title");
+        boolean byDirector = searchParams.contains("director");
+        List<Long> filmIds = fuzzy
+                ? fuzzyIndex.search(keyword, byTitle, byDirector)
+                : searchIndex.search(keyword, byTitle, byDirector);
+        List<Long> byPopularity = popularityIndex.orderByPopularity(filmIds);
+        if (!searchParams.contains("description")) {
+            return filmRepository.getByIds(byPopularity);
+        }
+
+        // совпадения в описании идут первыми по оценке BM25, за ними остальные - по популярности
+        double weight = popularityWeight == null ? defaultPopularityWeight : popularityWeight;
+        Set<Long> ranked = new LinkedHashSet<>(descriptionIndex.search(keyword, weight));
+        ranked.addAll(byPopularity);
+        return filmRepository.getByIds(ranked);
+    }
+
+    @Override
+    public List<Suggestion> autocomplete(String prefix, int limit) {
+        return autocompleteIndex.suggest(prefix, limit);
+    }
+
+    @Override
+    public Collection<Film> getSimilar(long filmId, int count) {
+        checkFilmExist(filmId, "SIMILAR-FILMS");
+        return filmRepository.getByIds(similarityIndex.getSimilar(filmId, count));
+    }
+
+    /**
+     * Общие лайки пересекаются в матрице лайков, порядок - по убыванию числа лайков, как у популярных фильмов.
+     */
+    private Collection<Film> commonFilms(Collection<Long> userIds) {
+        List<Long> filmIds = new ArrayList<>();
+        likeMatrix.getCommonFilms(userIds).forEach((int filmId) -> filmIds.add((long) filmId));
+        return filmRepository.getByIds(popularityIndex.orderByPopularity(filmIds));
     }
 
     private void checkFilmMpa(Film film) {
         int mapId = film.getMpa().getId();
-        mpaRepository.getById(mapId)
+        referenceData.getMpa(mapId)
                 .orElseThrow(() -> {
                     log.debug("CHECK MpaFilm {}. Рейтинг с id={} не найден", film, mapId);
                     return new IllegalArgumentException("Рейтинг с id=" + mapId + " не существует");
@@ -152,9 +231,7 @@ public class FilmServiceImpl implements FilmService {
                 .map(Genre::getId)
                 .collect(Collectors.toList());
 
-        int matchingGenresCount = genreRepository.countMatchingGenres(genreIds);
-
-        if (matchingGenresCount != genres.size()) {
+        if (!referenceData.containsAllGenres(genreIds)) {
             log.debug("CHECK FilmGenres {}. Обнаружен несуществующий жанр в списке {}", film, genres);
             throw new IllegalArgumentException("Фильм содержит несуществующий жанр");
         }
@@ -170,24 +247,23 @@ public class FilmServiceImpl implements FilmService {
                 .map(Director::getId)
                 .collect(Collectors.toList());
 
-        int matchingDirectorsCount = directorRepository.countMatchingDirectors(directorIds);
-        if (matchingDirectorsCount != directors.size()) {
+        if (!referenceData.containsAllDirectors(directorIds)) {
             log.debug("CHECK FilmDirectors {}. Обнаружен несуществующий режиссер в списке {}", film, directors);
             throw new IllegalArgumentException("Фильм содержит не существующего режиссера");
         }
     }
 
     private void checkFilmExist(Long filmId, String method) {
-        filmRepository.getById(filmId).orElseThrow(() -> {
+        if (!filmRepository.existsById(filmId)) {
             log.debug("{}. Фильм с id={} не найден", method, filmId);
-            return new NotFoundException("Фильм с id=" + filmId + " не существует");
-        });
+            throw new NotFoundException("Фильм с id=" + filmId + " не существует");
+        }
     }
 
     private void checkUserExist(Long userId, String method) {
-        userRepository.getById(userId).orElseThrow(() -> {
+        if (!userRepository.existsById(userId)) {
             log.info("{}. Пользователь с id={} не найден", method, userId);
-            return new NotFoundException("Пользователь с id=" + userId + " не существует");
-        });
+            throw new NotFoundException("Пользователь с id=" + userId + " не существует");
+        }
     }
 }
\ No newline at end of file
@@ -3,9 +3,9 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.repository.mpa.MpaRepository;
 
 import java.util.Collection;
 
@@ -13,16 +13,16 @@ import java.util.Collection;
 @RequiredArgsConstructor
 @Slf4j
 public class MpaServiceImpl implements MpaService {
-    private final MpaRepository mpaRepository;
+    private final ReferenceDataCache referenceData;
 
     @Override
     public Collection<Mpa> getAll() {
-        return mpaRepository.getAll();
+        return referenceData.getAllMpa();
     }
 
     @Override
     public Mpa getById(int mpaId) {
-        Mpa mpa = mpaRepository.getById(mpaId)
+        Mpa mpa = referenceData.getMpa(mpaId)
                 .orElseThrow(() -> {
                     log.debug("GET MPA By ID {}. Рейтинг с айди {} не найден", mpaId, mpaId);
                     return new NotFoundException("Рейтинг с id=" + mpaId + " не существует");
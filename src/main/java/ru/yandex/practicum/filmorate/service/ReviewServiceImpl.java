@@ -101,23 +101,23 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     private void checkReviewExist(Long reviewId, String method) {
-        reviewRepository.getById(reviewId).orElseThrow(() -> {
+        if (!reviewRepository.existsById(reviewId)) {
             log.debug("{}. Отзыв с id={} не найден", method, reviewId);
-            return new NotFoundException("Отзыв с id=" + reviewId + " не существует");
-        });
+            throw new NotFoundException("Отзыв с id=" + reviewId + " не существует");
+        }
     }
 
     private void checkFilmExist(Long filmId, String method) {
-        filmRepository.getById(filmId).orElseThrow(() -> {
+        if (!filmRepository.existsById(filmId)) {
             log.debug("{}. Фильм с id={} не найден", method, filmId);
-            return new NotFoundException("Фильм с id=" + filmId + " не существует");
-        });
+            throw new NotFoundException("Фильм с id=" + filmId + " не существует");
+        }
     }
 
     private void checkUserExist(Long userId, String method) {
-        userRepository.getById(userId).orElseThrow(() -> {
+        if (!userRepository.existsById(userId)) {
             log.info("{}. Пользователь с id={} не найден", method, userId);
-            return new NotFoundException("Пользователь с id=" + userId + " не существует");
-        });
+            throw new NotFoundException("Пользователь с id=" + userId + " не существует");
+        }
     }
 }
@@ -1,14 +1,20 @@
 package ru.yandex.practicum.filmorate.service;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.Event;
 
 import java.util.Collection;
+import java.util.function.Consumer;
 
 public interface UserService {
     Collection<User> getAll();
 
+    Collection<User> getAll(long afterId, int limit);
+
+    void streamAll(Consumer<Collection<User>> chunkConsumer);
+
     User getById(long userId);
 
     User create(User user);
@@ -23,9 +29,30 @@ public interface UserService {
 
     Collection<User> getFriends(long userId);
 
+    Collection<User> getFriends(long userId, long afterId, int limit);
+
     Collection<User> getCommonFriends(long userId, long otherId);
 
-    Collection<Film> getFilmRecommendations(long userId);
+    Collection<User> getFriendSuggestions(long userId, int count);
+
+    FriendshipPath getFriendshipPath(long userId, long otherId);
+
+    Collection<User> getSimilar(long userId, int count);
+
+    Collection<Film> getFilmRecommendations(long userId, int count, String mode);
+
+    /**
+     * Проверяет пользователя сразу и возвращает источник, отдающий всю ленту порциями по возрастанию
+     * идентификатора, для потоковой записи ответа.
+     */
+    Consumer<Consumer<Collection<Event>>> streamFeed(long userId);
+
+    Collection<Event> getFeed(long userId, long afterId, int limit);
+
+    Collection<Event> getFeedBefore(long userId, long beforeId, int limit);
 
-    Collection<Event> getFeed(long userId);
+    /**
+     * @return события друзей пользователя с идентификаторами меньше {@code beforeId}, от новых к старым
+     */
+    Collection<Event> getTimeline(long userId, long beforeId, int limit);
 }
@@ -2,18 +2,30 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.CatalogListener;
+import ru.yandex.practicum.filmorate.index.FriendshipGraph;
+import ru.yandex.practicum.filmorate.index.TimelineIndex;
+import ru.yandex.practicum.filmorate.index.UserSimilarityIndex;
 import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipPath;
 import ru.yandex.practicum.filmorate.model.Operation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.recommendation.FactorizedRecommender;
+import ru.yandex.practicum.filmorate.recommendation.FilmRecommender;
 import ru.yandex.practicum.filmorate.repository.feed.FeedRepository;
 import ru.yandex.practicum.filmorate.repository.film.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.like.LikeRepository;
 import ru.yandex.practicum.filmorate.repository.user.UserRepository;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -22,12 +34,32 @@ public class UserServiceImpl implements UserService {
     private final UserRepository repository;
     private final FilmRepository filmRepository;
     private final FeedRepository feedRepository;
+    private final LikeRepository likeRepository;
+    private final List<CatalogListener> catalogListeners;
+    private final FilmRecommender filmRecommender;
+    private final FactorizedRecommender factorizedRecommender;
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final FriendshipGraph friendshipGraph;
+    private final TimelineIndex timelineIndex;
+
+    @Value("${filmorate.streaming.chunk-size}")
+    private int streamChunkSize;
 
     @Override
     public Collection<User> getAll() {
         return repository.getAll();
     }
 
+    @Override
+    public Collection<User> getAll(long afterId, int limit) {
+        return repository.getAll(afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Collection<User>> chunkConsumer) {
+        repository.streamAll(streamChunkSize, chunkConsumer);
+    }
+
     @Override
     public User getById(long userId) {
         return repository.getById(userId)
@@ -52,22 +84,29 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public void delete(Long userId) {
+        Collection<Long> likedFilmIds = likeRepository.getLikedFilmIds(userId);
         repository.delete(userId);
+        friendshipGraph.deleteUser(userId);
+        timelineIndex.deleteUser(userId);
+        likedFilmIds.forEach(filmId ->
+                catalogListeners.forEach(listener -> listener.onLikeRemoved(filmId, userId)));
     }
 
     @Override
     public void addFriend(long userId, long friendId) {
-        checkUserExistence(userId, "ADD-FRIEND-USER");
-        checkUserExistence(friendId, "ADD-FRIEND-FRIEND");
+        checkUsersExistence(userId, friendId, "ADD-FRIEND");
         repository.addFriend(userId, friendId);
+        friendshipGraph.addFriend(userId, friendId);
+        timelineIndex.invalidate(userId);
         feedRepository.saveEvent(userId, Operation.ADD, EventType.FRIEND, friendId);
     }
 
     @Override
     public void deleteFriend(long userId, long friendId) {
-        checkUserExistence(userId, "DELETE-FRIEND-USER");
-        checkUserExistence(friendId, "DELETE-FRIEND-FRIEND");
+        checkUsersExistence(userId, friendId, "DELETE-FRIEND");
         repository.deleteFriend(userId, friendId);
+        friendshipGraph.deleteFriend(userId, friendId);
+        timelineIndex.onFriendDeleted(userId, friendId);
         feedRepository.saveEvent(userId, Operation.REMOVE, EventType.FRIEND, friendId);
     }
 
@@ -77,23 +116,92 @@ public class UserServiceImpl implements UserService {
         return repository.getFriends(userId);
     }
 
+    @Override
+    public Collection<User> getFriends(long userId, long afterId, int limit) {
+        checkUserExistence(userId, "GET-FRIENDS");
+        return repository.getFriends(userId, afterId, limit);
+    }
+
     @Override
     public Collection<User> getCommonFriends(long userId, long otherId) {
-        checkUserExistence(userId, "GET-COMMON-FRIENDS-USER");
-        checkUserExistence(otherId, "GET-COMMON-FRIENDS-FRIEND");
+        checkUsersExistence(userId, otherId, "GET-COMMON-FRIENDS");
         return repository.getCommonFriends(userId, otherId);
     }
 
     @Override
-    public Collection<Film> getFilmRecommendations(long userId) {
+    public Collection<User> getFriendSuggestions(long userId, int count) {
+        checkUserExistence(userId, "FRIEND-SUGGESTIONS");
+        return repository.getByIds(friendshipGraph.suggest(userId, count));
+    }
+
+    @Override
+    public FriendshipPath getFriendshipPath(long userId, long otherId) {
+        checkUsersExistence(userId, otherId, "FRIENDSHIP-PATH");
+        List<Long> userIds = friendshipGraph.findPath(userId, otherId);
+        if (userIds.isEmpty()) {
+            log.info("FRIENDSHIP-PATH Цепочка дружбы от id={} до id={} не найдена", userId, otherId);
+            throw new NotFoundException("Цепочка дружбы от пользователя с id=" + userId
+                    + " до пользователя с id=" + otherId + " не найдена");
+        }
+        return new FriendshipPath(userIds.size() - 1, List.copyOf(repository.getByIds(userIds)));
+    }
+
+    @Override
+    public Collection<User> getSimilar(long userId, int count) {
+        checkUserExistence(userId, "SIMILAR-USERS");
+        return repository.getByIds(userSimilarityIndex.getSimilar(userId, count));
+    }
+
+    @Override
+    public Collection<Film> getFilmRecommendations(long userId, int count, String mode) {
         checkUserExistence(userId, "FILM-RECOMMENDATIONS");
-        return filmRepository.getFilmRecommendations(userId);
+        List<Long> filmIds = switch (mode) {
+            case "neighbours" -> filmRecommender.recommend(userId, count);
+            case "factorized" -> factorizedRecommender.recommend(userId, count);
+            default -> throw new IllegalArgumentException("Неизвестный режим рекомендаций: " + mode);
+        };
+        return filmRepository.getByIds(filmIds);
+    }
+
+    @Override
+    public Consumer<Consumer<Collection<Event>>> streamFeed(long userId) {
+        checkUserExistence(userId, "GET-FEED");
+        // события пишутся асинхронно: лента должна включать уже выполненные действия пользователя
+        feedRepository.flush(userId);
+        return chunkConsumer -> {
+            // постраничное чтение по индексу: в памяти не больше одной порции
+            long afterId = 0;
+            Collection<Event> chunk;
+            do {
+                chunk = repository.getFeed(userId, afterId, streamChunkSize);
+                if (!chunk.isEmpty()) {
+                    chunkConsumer.accept(chunk);
+                    afterId = chunk.stream().mapToLong(Event::getEventId).max().orElseThrow();
+                }
+            } while (chunk.size() == streamChunkSize);
+        };
     }
 
     @Override
-    public Collection<Event> getFeed(long userId) {
+    public Collection<Event> getFeed(long userId, long afterId, int limit) {
         checkUserExistence(userId, "GET-FEED");
-        return repository.getFeed(userId);
+        feedRepository.flush(userId);
+        return repository.getFeed(userId, afterId, limit);
+    }
+
+    @Override
+    public Collection<Event> getFeedBefore(long userId, long beforeId, int limit) {
+        checkUserExistence(userId, "GET-FEED");
+        feedRepository.flush(userId);
+        return repository.getFeedBefore(userId, beforeId, limit);
+    }
+
+    @Override
+    public Collection<Event> getTimeline(long userId, long beforeId, int limit) {
+        checkUserExistence(userId, "GET-TIMELINE");
+        // лента друзей должна включать уже выполненные действия друзей
+        feedRepository.flush(Arrays.stream(friendshipGraph.getFriends(userId)).boxed().toList());
+        return timelineIndex.getTimeline(userId, beforeId, limit, repository::getFeedsBefore);
     }
 
     private void checkAndInitializeUserName(User user) {
@@ -103,10 +211,17 @@ public class UserServiceImpl implements UserService {
     }
 
     private void checkUserExistence(Long userId, String method) {
-        repository.getById(userId)
-                .orElseThrow(() -> {
-                    log.info("{} Пользователь с id={} не найден", method, userId);
-                    return new NotFoundException("Пользователя с id=" + userId + " не существует");
-                });
+        if (!repository.existsById(userId)) {
+            log.info("{} Пользователь с id={} не найден", method, userId);
+            throw new NotFoundException("Пользователя с id=" + userId + " не существует");
+        }
+    }
+
+    private void checkUsersExistence(long userId, long otherId, String method) {
+        // обычно оба пользователя существуют, и хватает одной проверки
+        if (!repository.existAll(List.of(userId, otherId))) {
+            checkUserExistence(userId, method + "-USER");
+            checkUserExistence(otherId, method + "-FRIEND");
+        }
     }
 }
@@ -10,6 +10,8 @@ drop table if exists USERS CASCADE;
 drop table if exists REVIEW_RATINGS CASCADE;
 drop table if exists REVIEWS CASCADE;
 drop table if exists USER_EVENTS CASCADE;
+drop table if exists USER_FACTORS CASCADE;
+drop table if exists FILM_FACTORS CASCADE;
 
 create table if not exists MPA
 (
@@ -36,9 +38,12 @@ create table if not exists FILMS
     DESCRIPTION  CHARACTER VARYING(200) NOT NULL,
     RELEASE_DATE DATE,
     DURATION     INTEGER NOT NULL,
-    MPA_ID       INTEGER NOT NULL REFERENCES MPA (MPA_ID)
+    MPA_ID       INTEGER NOT NULL REFERENCES MPA (MPA_ID),
+    LIKE_COUNT   INTEGER NOT NULL DEFAULT 0
 );
 
+create index if not exists FILMS_LIKE_COUNT_IDX on FILMS (LIKE_COUNT DESC, FILM_ID);
+
 create table if not exists USERS
 (
     USER_ID  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -104,3 +109,18 @@ create table if not exists USER_EVENTS
     OPERATION CHARACTER VARYING(20) NOT NULL,
     ENTITY_ID BIGINT NOT NULL
 );
+
+create index if not exists USER_EVENTS_USER_EVENT_IDX on USER_EVENTS (USER_ID, EVENT_ID);
+create index if not exists USER_EVENTS_USER_EVENT_DESC_IDX on USER_EVENTS (USER_ID, EVENT_ID DESC);
+
+create table if not exists USER_FACTORS
+(
+    USER_ID BIGINT NOT NULL PRIMARY KEY REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    FACTORS VARBINARY NOT NULL
+);
+
+create table if not exists FILM_FACTORS
+(
+    FILM_ID BIGINT NOT NULL PRIMARY KEY REFERENCES FILMS (FILM_ID) ON DELETE CASCADE,
+    FACTORS VARBINARY NOT NULL
+);
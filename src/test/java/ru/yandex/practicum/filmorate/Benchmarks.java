@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Общее для замеров с тегом {@code benchmark}: они не входят в обычный прогон тестов
+ * и запускаются профилем {@code mvn test -Pbenchmark}. Объем данных задается системными свойствами
+ * {@code -Dbenchmark.<имя>=<значение>}.
+ */
+public final class Benchmarks {
+    public static final String TAG = "benchmark";
+
+    private Benchmarks() {
+    }
+
+    public static int size(String name, int defaultValue) {
+        return Integer.getInteger("benchmark." + name, defaultValue);
+    }
+
+    /**
+     * Выполняет действие {@code warmup} раз без замера, затем {@code runs} раз с замером каждого вызова.
+     */
+    public static Latency measure(int warmup, int runs, Runnable action) {
+        for (int i = 0; i < warmup; i++) {
+            action.run();
+        }
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            action.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return new Latency(percentile(nanos, 0.5), percentile(nanos, 0.95), percentile(nanos, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double share) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * share) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Задержка в миллисекундах.
+     */
+    public record Latency(double p50, double p95, double p99) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "p50 %.3f мс, p95 %.3f мс, p99 %.3f мс", p50, p95, p99);
+        }
+    }
+}
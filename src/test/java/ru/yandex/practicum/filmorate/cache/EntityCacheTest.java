@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityCacheTest {
+    private final EntityCache<String> cache = new EntityCache<>("test", true, 100, Duration.ofMinutes(10),
+            new SimpleMeterRegistry());
+
+    @Test
+    void bulkLoadIsCached() {
+        assertThat(cache.getAll(List.of(1L, 2L), ids -> Map.of(1L, "one", 2L, "two")))
+                .containsExactlyInAnyOrderEntriesOf(Map.of(1L, "one", 2L, "two"));
+
+        assertThat(cache.getAll(List.of(1L, 2L), failingLoader())).containsEntry(1L, "one").containsEntry(2L, "two");
+        assertThat(cache.get(1L, id -> Optional.empty())).contains("one");
+    }
+
+    @Test
+    void missingEntitiesAreNotCached() {
+        assertThat(cache.getAll(List.of(1L, 2L), ids -> Map.of(1L, "one"))).containsOnlyKeys(1L);
+
+        assertThat(cache.getAll(List.of(2L), ids -> Map.of(2L, "two"))).containsEntry(2L, "two");
+    }
+
+    @Test
+    void valueLoadedBeforeEvictionIsReturnedButNotCached() {
+        // строка прочитана до изменения, а сброс после изменения пришел, пока загрузка не закончилась
+        Map<Long, String> loaded = cache.getAll(List.of(1L), ids -> {
+            cache.evict(1L);
+            return Map.of(1L, "stale");
+        });
+
+        assertThat(loaded).containsEntry(1L, "stale");
+        assertThat(cache.getAll(List.of(1L), ids -> Map.of(1L, "fresh"))).containsEntry(1L, "fresh");
+    }
+
+    @Test
+    void evictionOfAllEntriesDuringLoadIsHonoured() {
+        cache.getAll(List.of(1L, 2L), ids -> {
+            cache.evictAll();
+            return Map.of(1L, "stale", 2L, "stale");
+        });
+
+        assertThat(cache.getAll(List.of(1L, 2L), ids -> Map.of(1L, "fresh", 2L, "fresh")))
+                .containsEntry(1L, "fresh")
+                .containsEntry(2L, "fresh");
+    }
+
+    @Test
+    void evictionOfAnotherKeyDoesNotPreventCaching() {
+        cache.getAll(List.of(1L), ids -> {
+            cache.evict(2L);
+            return Map.of(1L, "one");
+        });
+
+        assertThat(cache.getAll(List.of(1L), failingLoader())).containsEntry(1L, "one");
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        EntityCache<String> disabled = new EntityCache<>("disabled", false, 100, Duration.ofMinutes(10),
+                new SimpleMeterRegistry());
+        disabled.getAll(List.of(1L), ids -> Map.of(1L, "one"));
+
+        assertThat(disabled.getAll(List.of(1L), ids -> Map.of(1L, "again"))).containsEntry(1L, "again");
+    }
+
+    private static Function<Set<Long>, Map<Long, String>> failingLoader() {
+        return ids -> {
+            throw new AssertionError("Ожидалось чтение из кэша: " + ids);
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class CursorsTest {
+
+    @Test
+    void encodedIdIsDecoded() {
+        assertThat(Cursors.decode(Cursors.encode(42))).isEqualTo(42);
+        assertThat(Cursors.decode(Cursors.encode(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+        assertThat(Cursors.decodeInt(Cursors.encode(7))).isEqualTo(7);
+    }
+
+    @Test
+    void missingCursorStartsFromBeginning() {
+        assertThat(Cursors.decode(null)).isZero();
+        assertThat(Cursors.decode(" ")).isZero();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursors.decode("не base64"));
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursors.decode(raw("42")));
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursors.decode(raw("id:abc")));
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursors.decode(raw("id:-1")));
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursors.decodeInt(Cursors.encode(1L << 31)));
+    }
+
+    @Test
+    void fullPageCarriesCursorOfLastItem() {
+        ResponseEntity<Collection<Long>> response = Cursors.page(List.of(3L, 5L, 9L), 3, Long::longValue);
+
+        assertThat(response.getBody()).containsExactly(3L, 5L, 9L);
+        assertThat(Cursors.decode(response.getHeaders().getFirst(Cursors.NEXT_CURSOR_HEADER))).isEqualTo(9);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        ResponseEntity<Collection<Long>> response = Cursors.page(List.of(3L, 5L), 3, Long::longValue);
+
+        assertThat(response.getHeaders().containsKey(Cursors.NEXT_CURSOR_HEADER)).isFalse();
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
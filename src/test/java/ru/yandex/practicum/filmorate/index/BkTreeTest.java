@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BkTreeTest {
+    private final BkTree tree = new BkTree();
+
+    @Test
+    void duplicateTermIsNotAdded() {
+        assertThat(tree.add("кино")).isTrue();
+        assertThat(tree.add("вино")).isTrue();
+        assertThat(tree.add("кино")).isFalse();
+    }
+
+    @Test
+    void findsTermsWithinDistance() {
+        List.of("кино", "вино", "кит", "книга", "сон").forEach(tree::add);
+
+        assertThat(search("кино", 0)).containsExactly("кино");
+        assertThat(search("кино", 1)).containsExactlyInAnyOrder("кино", "вино");
+        assertThat(search("кинл", 2)).containsExactlyInAnyOrder("кино", "вино", "кит");
+    }
+
+    @Test
+    void matchesBruteForceOnRandomVocabulary() {
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            vocabulary.add(word(random));
+        }
+        vocabulary.forEach(tree::add);
+
+        for (int i = 0; i < 200; i++) {
+            String query = word(random);
+            int maxDistance = random.nextInt(3);
+            Set<String> expected = new HashSet<>();
+            vocabulary.stream()
+                    .filter(term -> levenshtein(term, query) <= maxDistance)
+                    .forEach(expected::add);
+
+            assertThat(search(query, maxDistance)).as("запрос %s, расстояние %d", query, maxDistance)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void searchStopsWhenVisitBudgetIsSpent() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            tree.add(word(random));
+        }
+
+        assertThat(tree.search("abcd", 2, 10, term -> {
+        })).isEqualTo(10);
+        assertThat(tree.search("abcd", 2, Integer.MAX_VALUE, term -> {
+        })).isBetween(11, 500);
+    }
+
+    @Test
+    void emptyTreeVisitsNothing() {
+        assertThat(tree.search("кино", 2, 100, term -> {
+            throw new AssertionError(term);
+        })).isZero();
+    }
+
+    private Set<String> search(String query, int maxDistance) {
+        Set<String> found = new HashSet<>();
+        tree.search(query, maxDistance, Integer.MAX_VALUE, found::add);
+        return found;
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[2 + random.nextInt(5)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(6));
+        }
+        return new String(letters);
+    }
+
+    private static int levenshtein(String first, String second) {
+        int[][] distances = new int[first.length() + 1][second.length() + 1];
+        for (int i = 0; i <= first.length(); i++) {
+            for (int j = 0; j <= second.length(); j++) {
+                if (i == 0 || j == 0) {
+                    distances[i][j] = i + j;
+                } else {
+                    int substitution = distances[i - 1][j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                    distances[i][j] = Math.min(substitution, Math.min(distances[i - 1][j], distances[i][j - 1]) + 1);
+                }
+            }
+        }
+        return distances[first.length()][second.length()];
+    }
+}
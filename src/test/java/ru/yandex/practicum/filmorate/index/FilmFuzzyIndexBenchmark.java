@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.Benchmarks;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Поиск с одной опечаткой в слове названия по длинам слов: задержка и доля запросов,
+ * нашедших фильм, из названия которого взято слово.
+ */
+@Tag(Benchmarks.TAG)
+@Slf4j
+class FilmFuzzyIndexBenchmark {
+    private final Random random = new Random(42);
+
+    @Test
+    void oneTypoSearch() {
+        SyntheticCatalog catalog = new SyntheticCatalog(Benchmarks.size("films", 200_000),
+                Benchmarks.size("directors", 5_000), Benchmarks.size("vocabulary", 50_000), random);
+        FilmFuzzyIndex index = new FilmFuzzyIndex();
+        ReflectionTestUtils.setField(index, "maxDistance", 2);
+        ReflectionTestUtils.setField(index, "maxVisits", 20_000);
+        ReflectionTestUtils.setField(index, "maxQueryTokens", 8);
+        long start = System.nanoTime();
+        index.rebuild(catalog.films, catalog.directors);
+        log.info("Индекс по {} фильмам построен за {} мс", catalog.films.size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        for (int[] lengths : new int[][]{{4, 5}, {6, 7}, {8, 10}}) {
+            AtomicInteger queries = new AtomicInteger();
+            AtomicInteger found = new AtomicInteger();
+            Benchmarks.Latency latency = Benchmarks.measure(20, 300, () -> {
+                Film film = filmWithWord(catalog.films, lengths[0], lengths[1]);
+                String word = wordOf(film, lengths[0], lengths[1]);
+                queries.incrementAndGet();
+                if (index.search(SyntheticCatalog.typo(word, random), true, false).contains(film.getId())) {
+                    found.incrementAndGet();
+                }
+            });
+            double share = (double) found.get() / queries.get();
+            log.info("Слова из {}-{} букв с опечаткой: {}; найден исходный фильм в {}% запросов",
+                    lengths[0], lengths[1], latency, Math.round(share * 100));
+            assertThat(share).isGreaterThan(0.9);
+        }
+    }
+
+    private Film filmWithWord(List<Film> films, int minLength, int maxLength) {
+        while (true) {
+            Film film = films.get(random.nextInt(films.size()));
+            if (wordOf(film, minLength, maxLength) != null) {
+                return film;
+            }
+        }
+    }
+
+    private static String wordOf(Film film, int minLength, int maxLength) {
+        return TextTokenizer.tokenize(film.getName()).stream()
+                .filter(token -> token.length() >= minLength && token.length() <= maxLength)
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmPopularityIndexTest {
+    private static final int COMEDY = 1;
+    private static final int DRAMA = 2;
+
+    private final FilmPopularityIndex index = new FilmPopularityIndex();
+
+    @Test
+    void partitionsAreOrderedByLikesThenId() {
+        index.rebuild(List.of(film(1, 3, 2000, COMEDY), film(2, 5, 2001, COMEDY, DRAMA), film(3, 3, 2000, DRAMA)));
+
+        assertThat(index.getMostPopular(10, null, null)).containsExactly(2L, 1L, 3L);
+        assertThat(index.getMostPopular(10, COMEDY, null)).containsExactly(2L, 1L);
+        assertThat(index.getMostPopular(10, null, 2000)).containsExactly(1L, 3L);
+        assertThat(index.getMostPopular(10, DRAMA, 2000)).containsExactly(3L);
+        assertThat(index.getYears()).containsExactly(2000, 2001);
+    }
+
+    @Test
+    void likesMoveFilmsBetweenPositions() {
+        index.rebuild(List.of(film(1, 1, 2000, COMEDY), film(2, 2, 2000, COMEDY)));
+
+        index.like(1);
+        index.like(1);
+        index.unlike(2);
+
+        assertThat(index.getMostPopular(10, COMEDY, 2000)).containsExactly(1L, 2L);
+        assertThat(index.getLikes(1)).isEqualTo(3);
+        assertThat(index.getLikes(2)).isEqualTo(1);
+    }
+
+    @Test
+    void changesMadeDuringRebuildAreReplayed() {
+        index.rebuild(List.of(film(1, 0, 2000, COMEDY), film(2, 0, 2000, COMEDY)));
+        index.beginRebuild();
+        // снимок прочитан до этих изменений
+        List<Film> snapshot = List.of(film(1, 0, 2000, COMEDY), film(2, 0, 2000, COMEDY));
+        index.like(2);
+        index.onFilmSaved(film(3, 0, 2001, DRAMA));
+        index.removeFilm(1);
+
+        index.rebuild(snapshot);
+
+        assertThat(index.getMostPopular(10, null, null)).containsExactly(2L, 3L);
+        assertThat(index.getLikes(2)).isEqualTo(1);
+    }
+
+    @Test
+    void likeAlreadyInSnapshotIsNotCountedTwice() {
+        index.rebuild(List.of(film(1, 0, 2000, COMEDY)));
+        index.beginRebuild();
+        index.like(1);
+        // лайк успел попасть и в снимок
+        index.rebuild(List.of(film(1, 1, 2000, COMEDY)));
+
+        assertThat(index.getLikes(1)).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledRebuildStopsJournal() {
+        index.rebuild(List.of(film(1, 0, 2000, COMEDY)));
+        index.beginRebuild();
+        index.like(1);
+        index.cancelRebuild();
+
+        index.rebuild(List.of(film(1, 5, 2000, COMEDY)));
+
+        assertThat(index.getLikes(1)).isEqualTo(5);
+    }
+
+    @Test
+    void driftListsFilmsThatDifferInMembershipOrLikes() {
+        index.rebuild(List.of(film(1, 3, 2000, COMEDY), film(2, 2, 2000, COMEDY), film(3, 1, 2000, COMEDY)));
+        Map<Long, Integer> expected = new LinkedHashMap<>();
+        expected.put(1L, 3);
+        expected.put(4L, 2);
+
+        assertThat(index.findDrift(expected, 2, COMEDY, null)).containsExactlyInAnyOrder(2L, 4L);
+        assertThat(index.findDrift(Map.of(1L, 3, 2L, 2), 2, COMEDY, null)).isEmpty();
+        assertThat(index.findDrift(Map.of(1L, 4, 2L, 2), 2, null, 2000)).containsExactly(1L);
+    }
+
+    private static Film film(long id, int likes, int year, Integer... genreIds) {
+        LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+        Arrays.stream(genreIds).forEach(genreId -> genres.add(new Genre(genreId, "Жанр " + genreId)));
+        return Film.builder()
+                .id(id)
+                .name("Фильм " + id)
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .genres(genres)
+                .likeCount(likes)
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.Benchmarks;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Подстрочный поиск по индексу n-грамм против полного перебора названий, который делал ILIKE.
+ */
+@Tag(Benchmarks.TAG)
+@Slf4j
+class FilmSearchIndexBenchmark {
+    private final Random random = new Random(42);
+
+    @Test
+    void substringSearch() {
+        SyntheticCatalog catalog = new SyntheticCatalog(Benchmarks.size("films", 200_000),
+                Benchmarks.size("directors", 5_000), Benchmarks.size("vocabulary", 50_000), random);
+        FilmSearchIndex index = new FilmSearchIndex();
+        long start = System.nanoTime();
+        index.rebuild(catalog.films, catalog.directors);
+        log.info("Индекс по {} фильмам построен за {} мс", catalog.films.size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        for (int length : new int[]{1, 2, 3, 5}) {
+            Supplier<String> queries = () -> substring(catalog.films, length);
+            for (int i = 0; i < 20; i++) {
+                String query = queries.get();
+                assertThat(index.search(query, true, false)).containsExactlyElementsOf(scan(catalog.films, query));
+            }
+            log.info("Запрос из {} символов: индекс {}; перебор названий {}", length,
+                    Benchmarks.measure(50, 500, () -> index.search(queries.get(), true, true)),
+                    Benchmarks.measure(2, 20, () -> scan(catalog.films, queries.get())));
+        }
+    }
+
+    private String substring(List<Film> films, int length) {
+        String title;
+        do {
+            title = films.get(random.nextInt(films.size())).getName();
+        } while (title.length() < length);
+        int start = random.nextInt(title.length() - length + 1);
+        return title.substring(start, start + length);
+    }
+
+    private static List<Long> scan(List<Film> films, String query) {
+        String normalized = query.toLowerCase(Locale.ROOT);
+        return films.stream()
+                .filter(film -> film.getName().toLowerCase(Locale.ROOT).contains(normalized))
+                .map(Film::getId)
+                .toList();
+    }
+}
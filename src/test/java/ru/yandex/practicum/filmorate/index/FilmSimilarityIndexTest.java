@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSimilarityIndexTest {
+    private static final int FILMS = 30;
+    private static final int USERS = 40;
+
+    private final List<Like> likes = new ArrayList<>();
+    private final LikeMatrix likeMatrix = new LikeMatrix();
+    private final FilmSimilarityIndex index = similarityIndex(likeMatrix);
+
+    @BeforeEach
+    void setUp() {
+        likes.add(new Like(1, 1));
+        likes.add(new Like(2, 1));
+        likes.add(new Like(1, 2));
+        likes.add(new Like(2, 2));
+        likes.add(new Like(3, 2));
+        likes.add(new Like(3, 3));
+        likes.add(new Like(4, 3));
+    }
+
+    @Test
+    void rebuildRanksFilmsByCosine() throws InterruptedException {
+        rebuild();
+
+        // косинусы для фильма 1: с фильмом 2 - 1, с фильмом 3 - 0.5
+        assertThat(index.getSimilar(1, 10)).containsExactly(2L, 3L);
+        // для фильма 3: с фильмом 4 - 0.71, с фильмами 1 и 2 поровну - 0.5
+        assertThat(index.getSimilar(3, 10)).containsExactly(4L, 1L, 2L);
+        assertThat(index.getSimilar(3, 1)).containsExactly(4L);
+        assertThat(index.getSimilar(99, 10)).isEmpty();
+    }
+
+    @Test
+    void likeRefreshesListsOfBothFilms() throws InterruptedException {
+        rebuild();
+
+        like(1, 3);
+
+        // у фильма 1 теперь три лайка: с фильмами 2 и 3 по 0.82, с фильмом 4 - 0.58
+        assertThat(index.getSimilar(1, 10)).containsExactly(2L, 3L, 4L);
+        assertThat(index.getSimilar(4, 10)).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void unlikeRemovesFilmsWithoutCommonLikes() throws InterruptedException {
+        rebuild();
+
+        unlike(3, 2);
+
+        assertThat(index.getSimilar(1, 10)).containsExactly(2L);
+        assertThat(index.getSimilar(3, 10)).containsExactly(4L);
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() throws InterruptedException {
+        likes.clear();
+        Random random = new Random(42);
+        for (int i = 0; i < 150; i++) {
+            likeMatrix.onLikeAdded(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+        }
+        index.rebuild(likeMatrix.getUserFilms(), likeMatrix.getFilmUsers());
+
+        for (int i = 0; i < 300; i++) {
+            long filmId = 1 + random.nextInt(FILMS);
+            long userId = 1 + random.nextInt(USERS);
+            if (likeMatrix.getFilms(userId).contains((int) filmId)) {
+                unlike(filmId, userId);
+            } else {
+                like(filmId, userId);
+            }
+        }
+
+        FilmSimilarityIndex rebuilt = similarityIndex(likeMatrix);
+        rebuilt.rebuild(likeMatrix.getUserFilms(), likeMatrix.getFilmUsers());
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            assertThat(index.getSimilar(filmId, FILMS)).as("фильм %d", filmId)
+                    .containsExactlyElementsOf(rebuilt.getSimilar(filmId, FILMS));
+        }
+    }
+
+    @Test
+    void likeMadeDuringRebuildIsReplayed() throws InterruptedException {
+        rebuild();
+        index.beginRebuild();
+        // снимок матрицы прочитан до лайка
+        Map<Integer, RoaringBitmap> userFilms = likeMatrix.getUserFilms();
+        Map<Integer, RoaringBitmap> filmUsers = likeMatrix.getFilmUsers();
+        like(4, 1);
+
+        index.rebuild(userFilms, filmUsers);
+
+        assertThat(index.getSimilar(4, 10)).contains(1L, 2L);
+        assertThat(index.getSimilar(2, 10)).contains(4L);
+    }
+
+    @Test
+    void deletedFilmIsDroppedFromAllLists() throws InterruptedException {
+        rebuild();
+
+        likeMatrix.onFilmDeleted(2);
+        index.onFilmDeleted(2);
+
+        assertThat(index.getSimilar(1, 10)).containsExactly(3L);
+        assertThat(index.getSimilar(2, 10)).isEmpty();
+    }
+
+    private void rebuild() throws InterruptedException {
+        likeMatrix.rebuild(consumer -> likes.forEach(consumer));
+        index.rebuild(likeMatrix.getUserFilms(), likeMatrix.getFilmUsers());
+    }
+
+    // как в сервисе: матрица лайков получает изменение первой
+    private void like(long filmId, long userId) {
+        likeMatrix.onLikeAdded(filmId, userId);
+        index.onLikeAdded(filmId, userId);
+    }
+
+    private void unlike(long filmId, long userId) {
+        likeMatrix.onLikeRemoved(filmId, userId);
+        index.onLikeRemoved(filmId, userId);
+    }
+
+    private static FilmSimilarityIndex similarityIndex(LikeMatrix likeMatrix) {
+        FilmSimilarityIndex index = new FilmSimilarityIndex(likeMatrix);
+        ReflectionTestUtils.setField(index, "topN", FILMS);
+        ReflectionTestUtils.setField(index, "maxUserLikes", FILMS);
+        ReflectionTestUtils.setField(index, "parallelism", 1);
+        return index;
+    }
+}
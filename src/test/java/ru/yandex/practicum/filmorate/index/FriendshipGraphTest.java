@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class FriendshipGraphTest {
+    private static final int USERS = 300;
+
+    private final FriendshipGraph graph = new FriendshipGraph();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(graph, "maxVisits", 1000);
+        ReflectionTestUtils.setField(graph, "maxDepth", 6);
+        ReflectionTestUtils.setField(graph, "maxPathVisits", 100_000);
+    }
+
+    @Test
+    void suggestionsAreOrderedByMutualFriendsThenId() {
+        befriend(1, 2, 3, 4);
+        befriend(2, 1, 5, 6);
+        befriend(3, 5, 6, 8);
+        befriend(4, 3, 5, 7);
+
+        // сам пользователь и его друг 3 не предлагаются
+        assertThat(graph.suggest(1, 10)).containsExactly(5L, 6L, 7L, 8L);
+        assertThat(graph.suggest(1, 2)).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void userWithoutFriendsGetsNoSuggestions() {
+        befriend(2, 3);
+
+        assertThat(graph.suggest(1, 10)).isEmpty();
+    }
+
+    @Test
+    void suggestionsSkipFriendListsBeyondVisitLimit() {
+        ReflectionTestUtils.setField(graph, "maxVisits", 5);
+        befriend(1, 2, 3, 4);
+        befriend(2, 10, 11);
+        befriend(3, 10, 11, 12);
+        befriend(4, LongStream.range(100, 200).toArray());
+
+        assertThat(graph.suggest(1, 10)).containsExactly(10L, 11L, 12L);
+    }
+
+    @Test
+    void firstFriendListIsTruncatedToVisitLimit() {
+        ReflectionTestUtils.setField(graph, "maxVisits", 3);
+        befriend(1, 2);
+        befriend(2, LongStream.range(100, 200).toArray());
+
+        assertThat(graph.suggest(1, 10)).containsExactly(100L, 101L, 102L);
+    }
+
+    @Test
+    void suggestionsFollowFriendshipChanges() {
+        befriend(1, 2);
+        befriend(2, 3);
+        assertThat(graph.suggest(1, 10)).containsExactly(3L);
+
+        graph.addFriend(1, 3);
+        assertThat(graph.suggest(1, 10)).isEmpty();
+
+        graph.deleteFriend(1, 3);
+        graph.deleteUser(2);
+        assertThat(graph.suggest(1, 10)).isEmpty();
+        assertThat(graph.getFollowers(3)).isEmpty();
+    }
+
+    @Test
+    void changesMadeDuringRebuildAreReplayed() {
+        befriend(1, 2, 3);
+
+        graph.rebuild(consumer -> {
+            consumer.accept(1L, 2L);
+            consumer.accept(1L, 3L);
+            // снимок уже прочитан, а связи меняются
+            graph.addFriend(1, 4);
+            graph.deleteFriend(1, 3);
+        });
+
+        assertThat(graph.getFriends(1)).containsExactly(2, 4);
+        assertThat(graph.getFollowers(3)).isEmpty();
+        assertThat(graph.getFollowers(4)).containsExactly(1);
+    }
+
+    @Test
+    void failedRebuildKeepsGraph() {
+        befriend(1, 2);
+
+        assertThatIllegalStateException().isThrownBy(() -> graph.rebuild(consumer -> {
+            throw new IllegalStateException("база недоступна");
+        }));
+        graph.addFriend(1, 3);
+
+        assertThat(graph.getFriends(1)).containsExactly(2, 3);
+    }
+
+    @Test
+    void pathToSelfIsSingleUser() {
+        assertThat(graph.findPath(1, 1)).containsExactly(1L);
+    }
+
+    @Test
+    void pathFollowsFriendshipDirection() {
+        befriend(1, 2);
+        befriend(2, 3);
+
+        assertThat(graph.findPath(1, 2)).containsExactly(1L, 2L);
+        assertThat(graph.findPath(1, 3)).containsExactly(1L, 2L, 3L);
+        assertThat(graph.findPath(3, 1)).isEmpty();
+    }
+
+    @Test
+    void shortestPathIsChosen() {
+        // длинная цепочка 1-2-3-4-5 и короткая 1-6-5
+        befriend(1, 2, 6);
+        befriend(2, 3);
+        befriend(3, 4);
+        befriend(4, 5);
+        befriend(6, 5);
+
+        assertThat(graph.findPath(1, 5)).containsExactly(1L, 6L, 5L);
+    }
+
+    @Test
+    void pathLongerThanMaxDepthIsNotFound() {
+        ReflectionTestUtils.setField(graph, "maxDepth", 3);
+        for (long userId = 1; userId < 5; userId++) {
+            befriend(userId, userId + 1);
+        }
+
+        assertThat(graph.findPath(1, 4)).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(graph.findPath(1, 5)).isEmpty();
+    }
+
+    @Test
+    void searchStopsAfterMaxVisits() {
+        ReflectionTestUtils.setField(graph, "maxPathVisits", 50);
+        befriend(1, LongStream.range(100, 200).toArray());
+        befriend(150, 2);
+
+        assertThat(graph.findPath(1, 2)).isEmpty();
+
+        ReflectionTestUtils.setField(graph, "maxPathVisits", 200);
+        assertThat(graph.findPath(1, 2)).containsExactly(1L, 150L, 2L);
+    }
+
+    @Test
+    void pathLengthMatchesBreadthFirstSearch() {
+        ReflectionTestUtils.setField(graph, "maxDepth", USERS);
+        Random random = new Random(42);
+        for (int i = 0; i < USERS * 2; i++) {
+            graph.addFriend(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            long from = 1 + random.nextInt(USERS);
+            long to = 1 + random.nextInt(USERS);
+            List<Long> path = graph.findPath(from, to);
+            int distance = distance(from, to);
+
+            assertThat(path.size() - 1).isEqualTo(distance);
+            if (distance >= 0) {
+                assertThat(path).startsWith(from).endsWith(to);
+                for (int step = 1; step < path.size(); step++) {
+                    assertThat(graph.getFriends(path.get(step - 1))).contains(path.get(step));
+                }
+            }
+        }
+    }
+
+    /**
+     * Обычный поиск в ширину от начала.
+     *
+     * @return число связей в кратчайшей цепочке или -1
+     */
+    private int distance(long from, long to) {
+        Map<Long, Integer> depths = new HashMap<>(Map.of(from, 0));
+        Deque<Long> queue = new ArrayDeque<>(List.of(from));
+        while (!queue.isEmpty()) {
+            long node = queue.poll();
+            if (node == to) {
+                return depths.get(node);
+            }
+            for (long friendId : graph.getFriends(node)) {
+                if (depths.putIfAbsent(friendId, depths.get(node) + 1) == null) {
+                    queue.add(friendId);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void befriend(long userId, long... friendIds) {
+        for (long friendId : friendIds) {
+            graph.addFriend(userId, friendId);
+        }
+    }
+}
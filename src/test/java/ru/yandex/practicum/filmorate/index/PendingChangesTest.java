@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PendingChangesTest {
+    private final PendingChanges<Set<String>> pending = new PendingChanges<>();
+    private final Set<String> current = new LinkedHashSet<>();
+    private final Set<String> fresh = new LinkedHashSet<>();
+
+    @Test
+    void changesWithoutRebuildAreAppliedToCurrentOnly() {
+        pending.apply(current, state -> state.add("a"));
+        pending.replay(fresh);
+
+        assertThat(current).containsExactly("a");
+        assertThat(fresh).isEmpty();
+    }
+
+    @Test
+    void changesDuringRebuildAreReplayedInOrder() {
+        pending.open();
+        pending.apply(current, state -> state.add("a"));
+        pending.apply(current, state -> state.remove("a"));
+        pending.apply(current, state -> state.add("b"));
+        // "a" успело попасть в снимок: повтор добавления ничего не меняет
+        fresh.add("a");
+
+        pending.replay(fresh);
+
+        assertThat(fresh).containsExactly("b");
+        assertThat(current).containsExactly("b");
+    }
+
+    @Test
+    void recordedChangeIsReplayedWithoutTouchingCurrent() {
+        pending.open();
+        pending.record(state -> state.add("a"));
+
+        pending.replay(fresh);
+
+        assertThat(current).isEmpty();
+        assertThat(fresh).containsExactly("a");
+    }
+
+    @Test
+    void replayClosesJournal() {
+        pending.open();
+        pending.apply(current, state -> state.add("a"));
+        pending.replay(fresh);
+        pending.apply(current, state -> state.add("b"));
+
+        Set<String> next = new LinkedHashSet<>();
+        pending.replay(next);
+
+        assertThat(fresh).containsExactly("a");
+        assertThat(next).isEmpty();
+    }
+
+    @Test
+    void discardedChangesAreNotReplayed() {
+        pending.open();
+        pending.apply(current, state -> state.add("a"));
+        pending.discard();
+        pending.apply(current, state -> state.add("b"));
+
+        pending.replay(fresh);
+
+        assertThat(current).containsExactly("a", "b");
+        assertThat(fresh).isEmpty();
+    }
+
+    @Test
+    void reopenedJournalStartsEmpty() {
+        pending.open();
+        pending.apply(current, state -> state.add("a"));
+        pending.open();
+        pending.apply(current, state -> state.add("b"));
+
+        pending.replay(fresh);
+
+        assertThat(fresh).containsExactly("b");
+    }
+}
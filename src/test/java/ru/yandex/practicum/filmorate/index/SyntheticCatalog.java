@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Каталог для замеров поиска: названия из 1-4 слов случайного словаря, у каждого фильма один режиссер.
+ * Слова из случайных букв - худший случай для BK-дерева, настоящие словари отсекаются лучше.
+ */
+final class SyntheticCatalog {
+    final List<String> vocabulary;
+    final List<Director> directors;
+    final List<Film> films;
+
+    SyntheticCatalog(int filmCount, int directorCount, int vocabularySize, Random random) {
+        vocabulary = IntStream.range(0, vocabularySize)
+                .mapToObj(i -> word(random))
+                .distinct()
+                .toList();
+        directors = IntStream.rangeClosed(1, directorCount)
+                .mapToObj(id -> new Director(id, capitalize(word(random)) + " " + capitalize(word(random))))
+                .toList();
+        films = new ArrayList<>(filmCount);
+        for (long id = 1; id <= filmCount; id++) {
+            LinkedHashSet<Director> filmDirectors = new LinkedHashSet<>();
+            filmDirectors.add(directors.get(random.nextInt(directorCount)));
+            films.add(Film.builder()
+                    .id(id)
+                    .name(IntStream.range(0, 1 + random.nextInt(4))
+                            .mapToObj(i -> capitalize(vocabulary.get(random.nextInt(vocabulary.size()))))
+                            .collect(Collectors.joining(" ")))
+                    .directors(filmDirectors)
+                    .build());
+        }
+    }
+
+    /**
+     * Слово с одной опечаткой: замена, вставка или удаление буквы.
+     */
+    static String typo(String word, Random random) {
+        int position = random.nextInt(word.length());
+        char letter = (char) ('a' + random.nextInt(26));
+        return switch (random.nextInt(3)) {
+            case 0 -> word.substring(0, position) + letter + word.substring(position + 1);
+            case 1 -> word.substring(0, position) + letter + word.substring(position);
+            default -> word.substring(0, position) + word.substring(position + 1);
+        };
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[3 + random.nextInt(8)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimelineIndexTest {
+    private static final long READER = 1;
+    private static final long FRIEND = 2;
+    private static final long OTHER_FRIEND = 3;
+
+    private final FriendshipGraph friendshipGraph = new FriendshipGraph();
+    private final TimelineIndex timelineIndex = new TimelineIndex(friendshipGraph);
+    private final List<Event> database = new ArrayList<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(timelineIndex, "capacity", 4);
+        ReflectionTestUtils.setField(timelineIndex, "followerThreshold", 100);
+        ReflectionTestUtils.setField(timelineIndex, "maxUsers", 100);
+        friendshipGraph.addFriend(READER, FRIEND);
+        friendshipGraph.addFriend(READER, OTHER_FRIEND);
+    }
+
+    @Test
+    void eventLoadedFromDatabaseAndDeliveredAfterLoadIsReturnedOnce() {
+        Event event = save(1, FRIEND);
+
+        assertThat(ids(timeline(Long.MAX_VALUE, 10))).containsExactly(1L);
+        // событие было в базе при загрузке буфера, а раскладка дошла до индекса позже
+        timelineIndex.onEventsSaved(List.of(event));
+
+        assertThat(ids(timeline(Long.MAX_VALUE, 10))).containsExactly(1L);
+        assertThat(fetches).hasValue(1);
+    }
+
+    @Test
+    void eventDeliveredWhileBufferIsLoadedIsReturnedOnce() {
+        save(1, FRIEND);
+        TimelineIndex.AuthorFeed feed = (authorIds, beforeId, limit) -> {
+            timelineIndex.onEventsSaved(List.of(save(2, OTHER_FRIEND)));
+            return authorFeed().newestBefore(authorIds, beforeId, limit);
+        };
+
+        assertThat(ids(timelineIndex.getTimeline(READER, Long.MAX_VALUE, 10, feed))).containsExactly(2L, 1L);
+        assertThat(ids(timeline(Long.MAX_VALUE, 10))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void newEventsAreServedFromBuffer() {
+        save(1, FRIEND);
+        timeline(Long.MAX_VALUE, 10);
+
+        timelineIndex.onEventsSaved(List.of(save(2, OTHER_FRIEND), save(3, FRIEND)));
+
+        assertThat(ids(timeline(Long.MAX_VALUE, 10))).containsExactly(3L, 2L, 1L);
+        assertThat(ids(timeline(3, 1))).containsExactly(2L);
+        assertThat(fetches).hasValue(1);
+    }
+
+    @Test
+    void pageOlderThanBufferIsReadFromDatabase() {
+        for (long id = 1; id <= 6; id++) {
+            save(id, id % 2 == 0 ? FRIEND : OTHER_FRIEND);
+        }
+
+        assertThat(ids(timeline(Long.MAX_VALUE, 3))).containsExactly(6L, 5L, 4L);
+        assertThat(ids(timeline(4, 10))).containsExactly(3L, 2L, 1L);
+        assertThat(fetches).hasValue(2);
+    }
+
+    @Test
+    void eventsOfFormerFriendAreSkipped() {
+        save(1, FRIEND);
+        save(2, OTHER_FRIEND);
+        timeline(Long.MAX_VALUE, 10);
+
+        friendshipGraph.deleteFriend(READER, OTHER_FRIEND);
+
+        assertThat(ids(timeline(Long.MAX_VALUE, 10))).containsExactly(1L);
+    }
+
+    private List<Event> timeline(long beforeId, int limit) {
+        return timelineIndex.getTimeline(READER, beforeId, limit, authorFeed());
+    }
+
+    private TimelineIndex.AuthorFeed authorFeed() {
+        return (authorIds, beforeId, limit) -> {
+            fetches.incrementAndGet();
+            Map<Long, List<Event>> feeds = new HashMap<>();
+            database.stream()
+                    .filter(event -> authorIds.contains(event.getUserId()) && event.getEventId() < beforeId)
+                    .sorted(Comparator.comparingLong(Event::getEventId).reversed())
+                    .forEach(event -> feeds.computeIfAbsent(event.getUserId(), key -> new ArrayList<>()).add(event));
+            feeds.replaceAll((authorId, feed) -> feed.subList(0, Math.min(limit, feed.size())));
+            return feeds;
+        };
+    }
+
+    private Event save(long eventId, long userId) {
+        Event event = Event.builder()
+                .eventId(eventId)
+                .timestamp(eventId)
+                .userId(userId)
+                .eventType(EventType.FRIEND)
+                .operation(Operation.ADD)
+                .entityId(eventId)
+                .build();
+        database.add(event);
+        return event;
+    }
+
+    private static List<Long> ids(Collection<Event> events) {
+        return events.stream().map(Event::getEventId).toList();
+    }
+}
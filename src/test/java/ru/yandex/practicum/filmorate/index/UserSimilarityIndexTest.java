@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserSimilarityIndexTest {
+    private static final int FILMS = 40;
+    private static final int USERS = 30;
+
+    private final LikeMatrix likeMatrix = new LikeMatrix();
+    private final UserSimilarityIndex index = similarityIndex(likeMatrix);
+
+    @Test
+    void similarUsersAreRankedByJaccard() {
+        likeAll(1, 1, 2, 3, 4);
+        likeAll(2, 1, 2, 3, 4);
+        likeAll(3, 1, 2, 3, 5);
+        likeAll(4, 10, 11, 12);
+        index.rebuild(likeMatrix.getUserFilms());
+
+        assertThat(index.getSimilar(1, 10)).containsExactly(2L, 3L);
+        assertThat(index.getSimilar(1, 1)).containsExactly(2L);
+        assertThat(index.getSimilar(4, 10)).isEmpty();
+        assertThat(index.getSimilar(99, 10)).isEmpty();
+    }
+
+    @Test
+    void likesUpdateSignatures() {
+        likeAll(1, 1, 2, 3);
+        likeAll(2, 7, 8, 9);
+        index.rebuild(likeMatrix.getUserFilms());
+
+        likeAll(2, 1, 2, 3);
+        assertThat(index.getSimilar(1, 10)).containsExactly(2L);
+
+        for (int filmId = 1; filmId <= 3; filmId++) {
+            unlike(filmId, 2);
+        }
+        assertThat(index.getSimilar(1, 10)).isEmpty();
+    }
+
+    @Test
+    void userWithoutLikesIsRemoved() {
+        likeAll(1, 1, 2);
+        likeAll(2, 1, 2);
+        index.rebuild(likeMatrix.getUserFilms());
+
+        unlike(1, 2);
+        unlike(2, 2);
+
+        assertThat(index.getSimilar(2, 10)).isEmpty();
+        assertThat(index.getSimilar(1, 10)).isEmpty();
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            likeMatrix.onLikeAdded(1 + random.nextInt(FILMS), 1 + random.nextInt(USERS));
+        }
+        index.rebuild(likeMatrix.getUserFilms());
+
+        for (int i = 0; i < 400; i++) {
+            long filmId = 1 + random.nextInt(FILMS);
+            long userId = 1 + random.nextInt(USERS);
+            if (likeMatrix.getFilms(userId).contains((int) filmId)) {
+                unlike(filmId, userId);
+            } else {
+                like(filmId, userId);
+            }
+        }
+
+        UserSimilarityIndex rebuilt = similarityIndex(likeMatrix);
+        rebuilt.rebuild(likeMatrix.getUserFilms());
+        for (long userId = 1; userId <= USERS; userId++) {
+            assertThat(index.getSimilar(userId, USERS)).as("пользователь %d", userId)
+                    .containsExactlyElementsOf(rebuilt.getSimilar(userId, USERS));
+        }
+    }
+
+    @Test
+    void likeMadeDuringRebuildIsReplayed() {
+        likeAll(1, 1, 2, 3);
+        likeAll(2, 7, 8, 9);
+        index.rebuild(likeMatrix.getUserFilms());
+        index.beginRebuild();
+        // снимок прочитан до лайков
+        Map<Integer, RoaringBitmap> snapshot = likeMatrix.getUserFilms();
+        likeAll(2, 1, 2, 3);
+        unlike(7, 2);
+
+        index.rebuild(snapshot);
+
+        assertThat(index.getSimilar(1, 10)).containsExactly(2L);
+    }
+
+    private void likeAll(long userId, long... filmIds) {
+        for (long filmId : filmIds) {
+            like(filmId, userId);
+        }
+    }
+
+    // как в сервисе: матрица лайков получает изменение первой
+    private void like(long filmId, long userId) {
+        likeMatrix.onLikeAdded(filmId, userId);
+        index.onLikeAdded(filmId, userId);
+    }
+
+    private void unlike(long filmId, long userId) {
+        likeMatrix.onLikeRemoved(filmId, userId);
+        index.onLikeRemoved(filmId, userId);
+    }
+
+    private static UserSimilarityIndex similarityIndex(LikeMatrix likeMatrix) {
+        UserSimilarityIndex index = new UserSimilarityIndex(likeMatrix);
+        // по одному значению в полосе: пары с заметным сходством почти наверняка совпадут хотя бы в одной
+        ReflectionTestUtils.setField(index, "bands", 32);
+        ReflectionTestUtils.setField(index, "rows", 1);
+        ReflectionTestUtils.setField(index, "maxCandidates", USERS);
+        index.init();
+        return index;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.repository.feed;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationNotAllowedException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BufferedFeedRepositoryTest {
+    private final JdbcFeedRepository delegate = mock(JdbcFeedRepository.class);
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<FeedListener> feedListeners = mock(ObjectProvider.class);
+    private final List<Event> saved = new ArrayList<>();
+    private final BufferedFeedRepository repository =
+            new BufferedFeedRepository(delegate, new SimpleMeterRegistry(), feedListeners);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        repository.shutdown();
+    }
+
+    @Test
+    void listenersAreResolvedOnce() {
+        List<Event> received = new ArrayList<>();
+        when(feedListeners.orderedStream()).thenAnswer(invocation -> Stream.of((FeedListener) received::addAll));
+        start();
+
+        repository.saveEvent(1, Operation.ADD, EventType.LIKE, 10);
+        repository.flush(1);
+        repository.saveEvent(1, Operation.REMOVE, EventType.LIKE, 10);
+        repository.flush(1);
+
+        assertThat(received).extracting(Event::getOperation).containsExactly(Operation.ADD, Operation.REMOVE);
+        verify(feedListeners, times(1)).orderedStream();
+    }
+
+    @Test
+    void failedListenerLookupDoesNotStopWriter() {
+        // при остановке контекста получатели уже уничтожены
+        when(feedListeners.orderedStream())
+                .thenThrow(new BeanCreationNotAllowedException("feedBroadcaster", "контекст останавливается"));
+        start();
+
+        repository.saveEvent(1, Operation.ADD, EventType.LIKE, 10);
+        repository.flush(1);
+        repository.saveEvent(2, Operation.ADD, EventType.LIKE, 20);
+        repository.flush(2);
+
+        assertThat(saved).extracting(Event::getUserId).containsExactly(1L, 2L);
+    }
+
+    private void start() {
+        doAnswer(invocation -> saved.addAll(invocation.getArgument(0))).when(delegate).saveEvents(anyList());
+        ReflectionTestUtils.setField(repository, "enabled", true);
+        ReflectionTestUtils.setField(repository, "queueCapacity", 100);
+        ReflectionTestUtils.setField(repository, "batchSize", 10);
+        ReflectionTestUtils.setField(repository, "flushIntervalMs", 20L);
+        repository.init();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.repository.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.Benchmarks;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Дозагрузка жанров и режиссеров страницы фильмов: время должно зависеть от размера страницы,
+ * а не каталога. Для сравнения замеряется прежний подход - чтение связей всего каталога.
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hydration-benchmark",
+        "filmorate.recommendations.als.train-on-startup=false"
+})
+@Slf4j
+class FilmHydrationBenchmark {
+    private static final int PAGE = 100;
+    private static final int DIRECTORS = 1000;
+
+    @Autowired
+    private JdbcFilmRepository filmRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final Random random = new Random(42);
+    private int films;
+
+    @Test
+    void pageHydrationDoesNotDependOnCatalogSize() {
+        insertDirectors();
+        int large = Benchmarks.size("films", 100_000);
+        for (int catalog : new int[]{large / 10, large}) {
+            insertFilms(catalog - films);
+            List<Long> page = randomPage();
+            assertThat(filmRepository.getByIds(page)).allSatisfy(film -> {
+                assertThat(film.getGenres()).isNotEmpty();
+                assertThat(film.getDirectors()).isNotEmpty();
+            });
+
+            log.info("Каталог {} фильмов, страница {}: getByIds {}; getAll(afterId) {}; "
+                            + "чтение связей всего каталога {}", catalog, PAGE,
+                    Benchmarks.measure(20, 200, () -> filmRepository.getByIds(randomPage())),
+                    Benchmarks.measure(20, 200, () -> filmRepository.getAll(random.nextInt(films - PAGE), PAGE)),
+                    Benchmarks.measure(2, 10, this::readAllAssociations));
+        }
+    }
+
+    /**
+     * Как читала связи прежняя дозагрузка: все строки таблиц связей, с выборкой нужных фильмов в памяти.
+     */
+    private void readAllAssociations() {
+        Set<Long> page = new HashSet<>(randomPage());
+        AtomicInteger matched = new AtomicInteger();
+        for (String table : List.of("FILMS_GENRES", "FILMS_DIRECTORS")) {
+            jdbc.query("SELECT * FROM " + table, rs -> {
+                if (page.contains(rs.getLong("FILM_ID"))) {
+                    matched.incrementAndGet();
+                }
+            });
+        }
+        assertThat(matched).hasPositiveValue();
+    }
+
+    private List<Long> randomPage() {
+        return random.longs(PAGE, 1, films + 1).boxed().toList();
+    }
+
+    private void insertDirectors() {
+        jdbc.batchUpdate("INSERT INTO DIRECTORS (NAME) VALUES (?)",
+                IntStream.rangeClosed(1, DIRECTORS).mapToObj(i -> new Object[]{"Режиссер " + i}).toList());
+    }
+
+    private void insertFilms(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        List<Object[]> genres = new ArrayList<>();
+        List<Object[]> directors = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            long id = films + i;
+            rows.add(new Object[]{id, "Фильм " + id, "Описание", Date.valueOf(LocalDate.of(2000, 1, 1)), 90, 1});
+            int firstGenre = 1 + random.nextInt(6);
+            genres.add(new Object[]{id, firstGenre});
+            if (random.nextBoolean()) {
+                genres.add(new Object[]{id, firstGenre % 6 + 1});
+            }
+            directors.add(new Object[]{id, 1 + random.nextInt(DIRECTORS)});
+        }
+        jdbc.batchUpdate("INSERT INTO FILMS (FILM_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        jdbc.batchUpdate("INSERT INTO FILMS_GENRES (FILM_ID, GENRE_ID) VALUES (?, ?)", genres);
+        jdbc.batchUpdate("INSERT INTO FILMS_DIRECTORS (FILM_ID, DIRECTOR_ID) VALUES (?, ?)", directors);
+        films += count;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.repository.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.Benchmarks;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Общие друзья пересечением идентификаторов в SQL против прежнего пересечения списков
+ * пользователей в памяти через {@code retainAll}.
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:common-friends-benchmark",
+        "filmorate.recommendations.als.train-on-startup=false"
+})
+@Slf4j
+class CommonFriendsBenchmark {
+    @Autowired
+    private JdbcUserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final Random random = new Random(42);
+    private final List<Object[]> friendships = new ArrayList<>();
+    private final Set<Long> pairs = new HashSet<>();
+    private long nextPair = 1;
+
+    @Test
+    void commonFriends() {
+        int users = Benchmarks.size("users", 20_000);
+        int large = Benchmarks.size("friends", 5_000);
+        jdbc.batchUpdate("INSERT INTO USERS (USER_ID, EMAIL, LOGIN, BIRTHDAY) VALUES (?, ?, ?, ?)",
+                LongStream.rangeClosed(1, users)
+                        .mapToObj(id -> new Object[]{id, "user" + id + "@example.com", "user" + id,
+                                Date.valueOf(LocalDate.of(2000, 1, 1))})
+                        .toList());
+        long[][] cases = {
+                pair(users, large, large / 5),
+                pair(users, large / 2, large / 50),
+                pair(users, 20, 0)
+        };
+        // фон: в среднем по десять друзей у каждого
+        for (int i = 0; i < users * 10; i++) {
+            addFriend(1 + random.nextInt(users), 1 + random.nextInt(users));
+        }
+        jdbc.batchUpdate("INSERT INTO FRIENDSHIP (USER_ID, FRIEND_ID) VALUES (?, ?)", friendships);
+
+        for (long[] pair : cases) {
+            Collection<User> common = userRepository.getCommonFriends(pair[0], pair[1]);
+            assertThat(common).extracting(User::getId).containsExactlyInAnyOrderElementsOf(
+                    retainAll(pair[0], pair[1]).stream().map(User::getId).toList());
+            log.info("Друзей около {} у каждого, общих {}: пересечение в SQL {}; retainAll по спискам {}",
+                    pair[2], common.size(),
+                    Benchmarks.measure(5, 30, () -> userRepository.getCommonFriends(pair[0], pair[1])),
+                    Benchmarks.measure(1, 5, () -> retainAll(pair[0], pair[1])));
+        }
+    }
+
+    private Collection<User> retainAll(long userId, long otherId) {
+        Collection<User> userFriends = userRepository.getFriends(userId);
+        userFriends.retainAll(userRepository.getFriends(otherId));
+        return userFriends;
+    }
+
+    /**
+     * Два пользователя с {@code friends} друзьями у каждого, из которых {@code common} общие;
+     * фоновые дружбы добавляются потом и могут немного изменить эти числа.
+     *
+     * @return идентификаторы пары и число друзей
+     */
+    private long[] pair(int users, int friends, int common) {
+        long first = nextPair++;
+        long second = nextPair++;
+        List<Long> candidates = LongStream.rangeClosed(nextPair, users).boxed()
+                .collect(Collectors.toCollection(ArrayList::new));
+        Collections.shuffle(candidates, random);
+        for (int i = 0; i < friends; i++) {
+            addFriend(first, candidates.get(i));
+            addFriend(second, candidates.get(i < common ? i : friends + i));
+        }
+        return new long[]{first, second, friends};
+    }
+
+    private void addFriend(long userId, long friendId) {
+        if (userId != friendId && pairs.add(userId * 1_000_000_000L + friendId)) {
+            friendships.add(new Object[]{userId, friendId});
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.Operation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.feed.FeedRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Клиенты, которые не читают поток, не должны раздувать число потоков отправки
+ * и мешать получать события остальным.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:feed-stall",
+        "logging.level.org.zalando.logbook=INFO",
+        "filmorate.feed-stream.sender-threads=" + FeedBroadcasterStallTest.SENDER_THREADS,
+        "filmorate.feed-stream.sender-queue=100",
+        "filmorate.feed-stream.write-timeout-ms=500",
+        "server.tomcat.connection-timeout=2000",
+        "filmorate.feed-stream.heartbeat-ms=600000"
+})
+class FeedBroadcasterStallTest {
+    static final int SENDER_THREADS = 2;
+    private static final int STALLED_CLIENTS = 8;
+    private static final int EVENTS = 1000;
+    private static final String SENDER_PREFIX = "feed-stream-sender-";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FeedRepository feedRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void stalledClientsDoNotGrowSenderPool() throws Exception {
+        long userId = userService.create(User.builder()
+                .email("stall@example.com")
+                .login("stall")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build()).getId();
+        List<Socket> stalled = new ArrayList<>();
+        AtomicInteger maxSenders = new AtomicInteger();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = Thread.ofPlatform().start(() -> {
+            while (sampling.get()) {
+                maxSenders.accumulateAndGet(senderThreads(), Math::max);
+                LockSupport.parkNanos(Duration.ofMillis(5).toNanos());
+            }
+        });
+        try {
+            for (int i = 0; i < STALLED_CLIENTS; i++) {
+                stalled.add(subscribe(userId, 1024));
+            }
+            awaitUntil(() -> subscribers() == STALLED_CLIENTS);
+
+            for (long i = 1; i <= EVENTS; i++) {
+                feedRepository.saveEvent(userId, Operation.ADD, EventType.LIKE, i);
+            }
+            feedRepository.flush(userId);
+
+            // зависшие клиенты отключаются по таймауту записи, освобождая потоки пула
+            awaitUntil(() -> subscribers() == 0);
+            try (Socket reader = subscribe(userId, 64 * 1024)) {
+                awaitUntil(() -> subscribers() == 1);
+                feedRepository.saveEvent(userId, Operation.REMOVE, EventType.LIKE, 1);
+                feedRepository.flush(userId);
+
+                assertThat(readUntilEvent(reader)).isTrue();
+            }
+        } finally {
+            sampling.set(false);
+            sampler.join();
+            for (Socket socket : stalled) {
+                socket.close();
+            }
+        }
+
+        assertThat(maxSenders.get()).isPositive().isLessThanOrEqualTo(SENDER_THREADS);
+        assertThat(meterRegistry.get("filmorate.feed.stream.write.timeouts").counter().count()).isPositive();
+    }
+
+    /**
+     * Маленький приемный буфер клиента и маленький буфер отправки сервера, см. {@link SmallSendBuffer},
+     * быстро заполняются, если клиент не читает.
+     */
+    private Socket subscribe(long userId, int receiveBuffer) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(receiveBuffer);
+        socket.setSoTimeout(10_000);
+        socket.connect(new InetSocketAddress("localhost", port));
+        socket.getOutputStream().write(("GET /users/" + userId + "/feed/stream HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+        return socket;
+    }
+
+    private static boolean readUntilEvent(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.equals("event:feed")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("filmorate.feed.stream.subscribers").gauge().value();
+    }
+
+    private static int senderThreads() {
+        return (int) Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(SENDER_PREFIX))
+                .count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("ожидание условия").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @TestConfiguration
+    static class SmallSendBuffer {
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> smallSendBuffer() {
+            return factory -> factory.addConnectorCustomizers(
+                    connector -> connector.setProperty("socket.txBufSize", "4096"));
+        }
+    }
+}